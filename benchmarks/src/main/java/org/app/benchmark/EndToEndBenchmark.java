@@ -0,0 +1,63 @@
+package org.app.benchmark;
+
+import org.app.excel.ExcelReader;
+import org.app.model.ExcelData;
+import org.app.xml.XmlGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Excel file in, CC015C file out, the way the GUI and the batch mode run it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class EndToEndBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    private final ExcelReader excelReader = new ExcelReader();
+    private final XmlGenerator xmlGenerator = new XmlGenerator();
+    private File workbook;
+    private File output;
+
+    @Setup(Level.Trial)
+    public void createWorkbook() throws Exception {
+        workbook = File.createTempFile("borderou-" + rows + "-", ".xlsx");
+        output = File.createTempFile("t2-" + rows + "-", ".xml");
+        SyntheticBorderou.write(workbook, rows, SyntheticBorderou.WeightCell.NUMERIC);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() {
+        for (File file : new File[]{workbook, output}) {
+            if (file != null && !file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    @Benchmark
+    public File convert() throws Exception {
+        ExcelData data = excelReader.read(workbook);
+        xmlGenerator.generate(output, "24RO000000000001", data);
+        return output;
+    }
+}
@@ -0,0 +1,71 @@
+package org.app.benchmark;
+
+import org.app.excel.ExcelReader;
+import org.app.model.ExcelData;
+import org.app.xml.XmlGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing an already read borderou, sequentially ({@code parallelism} 1) and with the items encoded on several
+ * threads, to see how the parallel writer scales with cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class GenerateBenchmark {
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private XmlGenerator xmlGenerator;
+    private ExcelData data;
+    private File output;
+
+    @Setup(Level.Trial)
+    public void readWorkbook() throws Exception {
+        File workbook = File.createTempFile("borderou-" + rows + "-", ".xlsx");
+        try {
+            SyntheticBorderou.writeRealistic(workbook, rows, 2000);
+            data = new ExcelReader().read(workbook);
+        } finally {
+            if (!workbook.delete()) {
+                workbook.deleteOnExit();
+            }
+        }
+        output = File.createTempFile("t2-" + rows + "-", ".xml");
+        xmlGenerator = parallelism > 1 ? new XmlGenerator().withParallelWrite(parallelism) : new XmlGenerator();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteOutput() {
+        if (output != null && !output.delete()) {
+            output.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public File generate() throws Exception {
+        xmlGenerator.generate(output, "24RO000000000001", data);
+        return output;
+    }
+}
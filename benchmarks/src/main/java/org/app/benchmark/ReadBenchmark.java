@@ -0,0 +1,55 @@
+package org.app.benchmark;
+
+import org.app.excel.ExcelReader;
+import org.app.model.ExcelData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ReadBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    @Param({"NUMERIC", "STRING", "FORMULA"})
+    public SyntheticBorderou.WeightCell weights;
+
+    private final ExcelReader excelReader = new ExcelReader();
+    private File workbook;
+
+    @Setup(Level.Trial)
+    public void createWorkbook() throws Exception {
+        workbook = File.createTempFile("borderou-" + rows + "-", ".xlsx");
+        SyntheticBorderou.write(workbook, rows, weights);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteWorkbook() {
+        if (workbook != null && !workbook.delete()) {
+            workbook.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public ExcelData read() throws Exception {
+        return excelReader.read(workbook);
+    }
+}
@@ -0,0 +1,136 @@
+package org.app.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Time to first frame and to first XML of the desktop jar, each run in a fresh JVM, with and without the AppCDS
+ * archive that {@code mvn -Pappcds package} writes next to the jar. JMH measures inside an already started JVM, so
+ * this launches the jar with {@code -Dt2uk.startupProbe} itself and timestamps the probe's output lines from the
+ * moment the process is started:
+ * <pre>
+ * java -cp benchmarks.jar org.app.benchmark.StartupBenchmark ../target/t2uk-1.0.jar [--runs 10]
+ *         [--archive ../target/t2uk.jsa] [--file borderou.xlsx] [--rows 1000]
+ * </pre>
+ * Without {@code --file} a synthetic borderou of {@code --rows} rows is used. Without a display only the time to
+ * first XML is reported.
+ */
+public final class StartupBenchmark {
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: StartupBenchmark <t2uk.jar> [--runs n] [--archive file.jsa] [--file borderou]"
+                    + " [--rows n]");
+            System.exit(2);
+        }
+        File jar = new File(args[0]);
+        int runs = 10;
+        int rows = 1000;
+        File archive = new File(jar.getParentFile(), "t2uk.jsa");
+        File borderou = null;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--runs":
+                    runs = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--archive":
+                    archive = new File(args[i + 1]);
+                    break;
+                case "--file":
+                    borderou = new File(args[i + 1]);
+                    break;
+                case "--rows":
+                    rows = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        File synthetic = null;
+        if (borderou == null) {
+            synthetic = File.createTempFile("borderou-startup-", ".xlsx");
+            SyntheticBorderou.write(synthetic, rows, SyntheticBorderou.WeightCell.NUMERIC);
+            borderou = synthetic;
+        }
+        try {
+            measure("default", jar, null, borderou, runs);
+            if (archive.isFile()) {
+                measure("appcds", jar, archive, borderou, runs);
+            } else {
+                System.out.println("No AppCDS archive at " + archive + "; build with JDK 13 or later to get one.");
+            }
+        } finally {
+            if (synthetic != null && !synthetic.delete()) {
+                synthetic.deleteOnExit();
+            }
+        }
+    }
+
+    private static void measure(String mode, File jar, File archive, File borderou, int runs) throws Exception {
+        // one run first so the jar and the JDK are in the page cache for every measured run
+        launch(jar, archive, borderou);
+        List<Long> frames = new ArrayList<>();
+        List<Long> xmls = new ArrayList<>();
+        for (int run = 0; run < runs; run++) {
+            long[] times = launch(jar, archive, borderou);
+            if (times[0] >= 0) {
+                frames.add(times[0]);
+            }
+            xmls.add(times[1]);
+        }
+        if (!frames.isEmpty()) {
+            report(mode, "first frame", frames);
+        }
+        report(mode, "first XML", xmls);
+    }
+
+    /**
+     * Returns the milliseconds from process start to the frame line, or -1 without one, and to the XML line.
+     */
+    private static long[] launch(File jar, File archive, File borderou) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        if (archive != null) {
+            command.add("-XX:SharedArchiveFile=" + archive.getPath());
+        }
+        command.addAll(Arrays.asList("-Dt2uk.parseCache=false", "-Dt2uk.startupProbe=" + borderou.getPath(),
+                "-jar", jar.getPath()));
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long[] times = {-1, -1};
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                if (line.startsWith("startup: frame")) {
+                    times[0] = millis;
+                } else if (line.startsWith("startup: xml")) {
+                    times[1] = millis;
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0 || times[1] < 0) {
+            throw new IllegalStateException("Startup probe failed with exit code " + exitCode + ": " + command);
+        }
+        return times;
+    }
+
+    private static void report(String mode, String milestone, List<Long> millis) {
+        Collections.sort(millis);
+        System.out.println(String.format(Locale.ROOT, "%-8s %-12s p50 %5d ms   min %5d ms   max %5d ms   (%d runs)",
+                mode, milestone, millis.get(millis.size() / 2), millis.get(0), millis.get(millis.size() - 1),
+                millis.size()));
+    }
+}
@@ -0,0 +1,150 @@
+package org.app.benchmark;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.app.model.ExcelData;
+import org.app.model.Item;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates borderouri shaped like the carrier exports: a title block, the header row and one row per AWB,
+ * with a small set of repeating descriptions and HS codes.
+ */
+public final class SyntheticBorderou {
+    public enum WeightCell {
+        NUMERIC,
+        STRING,
+        FORMULA
+    }
+
+    private static final String[][] GOODS = {
+            {"DISPLAY TELEFON", "851779"},
+            {"CARCASA TELEFON", "392690"},
+            {"ACUMULATOR", "850760"},
+            {"INCARCATOR", "850440"},
+            {"CABLU USB", "854442"},
+            {"HUSA PROTECTIE", "420232"},
+            {"PIESE AUTO", "870899"},
+            {"FILTRU ULEI", "842123"},
+            {"IMBRACAMINTE", "620342"},
+            {"INCALTAMINTE", "640399"},
+            {"COSMETICE", "330499"},
+            {"JUCARII", "950300"},
+            {"CARTI", "490199"},
+            {"SUPLIMENTE ALIMENTARE", "210690"},
+            {"BIJUTERII", "711719"},
+            {"CEAS", "910219"},
+    };
+
+    private SyntheticBorderou() {
+    }
+
+    public static void write(File file, int rows, WeightCell weightCell) throws IOException {
+        Random random = new Random(rows);
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(200)) {
+            Sheet sheet = workbook.createSheet("Borderou");
+            sheet.createRow(0).createCell(0).setCellValue("BORDEROU STANDARD UK");
+            Row header = sheet.createRow(2);
+            header.createCell(0).setCellValue("Nr.");
+            header.createCell(1).setCellValue("AWB");
+            header.createCell(2).setCellValue("Descriere marfa");
+            header.createCell(3).setCellValue("Incadrare");
+            header.createCell(4).setCellValue("Greutate");
+            for (int i = 0; i < rows; i++) {
+                String[] goods = GOODS[random.nextInt(GOODS.length)];
+                double kgs = (1 + random.nextInt(400)) / 10.0;
+                Row row = sheet.createRow(i + 3);
+                row.createCell(0).setCellValue(i + 1);
+                row.createCell(1).setCellValue(awb(i));
+                row.createCell(2).setCellValue(goods[0]);
+                row.createCell(3).setCellValue(goods[1]);
+                Cell weight = row.createCell(4);
+                switch (weightCell) {
+                    case STRING:
+                        weight.setCellValue(String.valueOf(kgs).replace('.', ','));
+                        break;
+                    case FORMULA:
+                        weight.setCellFormula(kgs + "*1");
+                        weight.setCellValue(kgs);
+                        break;
+                    default:
+                        weight.setCellValue(kgs);
+                        break;
+                }
+            }
+            try (OutputStream outputStream = new FileOutputStream(file)) {
+                workbook.write(outputStream);
+            }
+            workbook.dispose();
+        }
+    }
+
+    /**
+     * Like {@link #write(File, int, WeightCell)} with numeric weights to the gram, but with {@code descriptions}
+     * distinct descriptions over about a sixteenth as many HS codes, the first few far more frequent than the rest
+     * as in real exports. Returns the total gross mass the file adds up to.
+     */
+    public static BigDecimal writeRealistic(File file, int rows, int descriptions) throws IOException {
+        Random random = new Random(rows);
+        BigDecimal total = BigDecimal.ZERO;
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(200)) {
+            Sheet sheet = workbook.createSheet("Borderou");
+            sheet.createRow(0).createCell(0).setCellValue("BORDEROU STANDARD UK");
+            Row header = sheet.createRow(2);
+            header.createCell(0).setCellValue("Nr.");
+            header.createCell(1).setCellValue("AWB");
+            header.createCell(2).setCellValue("Descriere marfa");
+            header.createCell(3).setCellValue("Incadrare");
+            header.createCell(4).setCellValue("Greutate");
+            for (int i = 0; i < rows; i++) {
+                // skewed towards low numbers: a handful of goods make up most rows
+                int kind = random.nextInt(random.nextInt(descriptions) + 1);
+                String[] goods = GOODS[kind % GOODS.length];
+                int subheading = (Integer.parseInt(goods[1].substring(4)) + kind / (GOODS.length * GOODS.length))
+                        % 100;
+                double kgs = (1 + random.nextInt(40_000)) / 1000.0;
+                Row row = sheet.createRow(i + 3);
+                row.createCell(0).setCellValue(i + 1);
+                row.createCell(1).setCellValue(awb(i));
+                row.createCell(2).setCellValue(kind < GOODS.length ? goods[0] : goods[0] + " MODEL " + kind);
+                row.createCell(3).setCellValue(
+                        goods[1].substring(0, 4) + String.format(Locale.ROOT, "%02d", subheading));
+                row.createCell(4).setCellValue(kgs);
+                total = total.add(BigDecimal.valueOf(kgs));
+            }
+            try (OutputStream outputStream = new FileOutputStream(file)) {
+                workbook.write(outputStream);
+            }
+            workbook.dispose();
+        }
+        return total;
+    }
+
+    public static ExcelData data(int rows) {
+        Random random = new Random(rows);
+        List<Item> items = new ArrayList<>(rows);
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < rows; i++) {
+            String[] goods = GOODS[random.nextInt(GOODS.length)];
+            BigDecimal kgs = BigDecimal.valueOf((1 + random.nextInt(400)) / 10.0);
+            items.add(new Item(goods[0], goods[1], awb(i), kgs));
+            total = total.add(kgs);
+        }
+        return new ExcelData(items, total);
+    }
+
+    private static String awb(int index) {
+        return String.format("1Z%06dX%010d", index % 1_000_000, index);
+    }
+}
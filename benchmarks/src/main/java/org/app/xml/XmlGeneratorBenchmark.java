@@ -0,0 +1,96 @@
+package org.app.xml;
+
+import org.app.benchmark.SyntheticBorderou;
+import org.app.model.ExcelData;
+import org.jdom2.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The XML stages on their own, against the bundled {@code t2uk UPS 280 art.xml} template. Lives in
+ * {@code org.app.xml} to reach the package-private JDOM stages ({@code applyData}, {@code writeXml}) next to
+ * the compiled-template {@code generate} path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class XmlGeneratorBenchmark {
+    private static final String LRN = "24RO000000000001";
+
+    @Param({"1000", "10000", "100000"})
+    public int items;
+
+    private final XmlGenerator xmlGenerator = new XmlGenerator();
+    private ExcelData data;
+    private File output;
+
+    @Setup(Level.Trial)
+    public void createData() throws Exception {
+        data = SyntheticBorderou.data(items);
+        output = File.createTempFile("t2-" + items + "-", ".xml");
+        xmlGenerator.compiledTemplate();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteOutput() {
+        if (output != null && !output.delete()) {
+            output.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public Document applyData(FreshTemplate template) {
+        xmlGenerator.applyData(template.document, LRN, data);
+        return template.document;
+    }
+
+    @Benchmark
+    public File writeXml(FilledTemplate template) throws Exception {
+        xmlGenerator.writeXml(template.document, output);
+        return output;
+    }
+
+    @Benchmark
+    public File generate() throws Exception {
+        xmlGenerator.generate(output, LRN, data);
+        return output;
+    }
+
+    @State(Scope.Thread)
+    public static class FreshTemplate {
+        private Document document;
+
+        @Setup(Level.Invocation)
+        public void load(XmlGeneratorBenchmark benchmark) throws Exception {
+            document = benchmark.xmlGenerator.loadTemplate();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FilledTemplate {
+        private Document document;
+
+        @Setup(Level.Iteration)
+        public void fill(XmlGeneratorBenchmark benchmark) throws Exception {
+            document = benchmark.xmlGenerator.loadTemplate();
+            benchmark.xmlGenerator.applyData(document, LRN, benchmark.data);
+        }
+    }
+}
@@ -1,16 +1,142 @@
 package org.app;
 
+import org.app.awb.AwbIndex;
+import org.app.cli.BatchCommand;
+import org.app.cli.ServeCommand;
+import org.app.cli.WatchCommand;
+import org.app.excel.ColumnProfiles;
 import org.app.excel.ExcelReader;
+import org.app.excel.ParseCache;
+import org.app.metrics.Metrics;
+import org.app.tariff.CommodityCodes;
 import org.app.ui.GeneratorFrame;
 import org.app.xml.XmlGenerator;
+import org.xml.sax.SAXException;
 
+import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
+import java.io.File;
+import java.io.IOException;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            int exitCode = new BatchCommand(new ExcelReader(), new XmlGenerator(), System.out).run(args);
+            System.exit(exitCode);
+        }
+        if (args.length > 0 && "--watch".equals(args[0])) {
+            int exitCode = new WatchCommand(new ExcelReader(), new XmlGenerator(), System.out).run(args);
+            System.exit(exitCode);
+        }
+        if (args.length > 0 && "--serve".equals(args[0])) {
+            int exitCode = new ServeCommand(new ExcelReader(), new XmlGenerator(), System.out).run(args);
+            System.exit(exitCode);
+        }
+        String startupProbe = System.getProperty("t2uk.startupProbe");
+        if (startupProbe != null && !startupProbe.isEmpty()) {
+            System.exit(StartupProbe.run(new File(startupProbe)));
+        }
         SwingUtilities.invokeLater(() -> {
-            GeneratorFrame frame = new GeneratorFrame(new ExcelReader(), new XmlGenerator());
+            GeneratorFrame frame = new GeneratorFrame();
             frame.setVisible(true);
+            open(frame);
         });
     }
+
+    /**
+     * The reader configured by {@code t2uk.hsDatabase}, {@code t2uk.parseCache} and {@code t2uk.columnProfiles}.
+     */
+    static ExcelReader createExcelReader() throws IOException {
+        String tariffDatabase = System.getProperty("t2uk.hsDatabase");
+        CommodityCodes commodityCodes = tariffDatabase == null || tariffDatabase.isEmpty() ? null
+                : new CommodityCodes(new File(tariffDatabase));
+        ParseCache parseCache = "false".equals(System.getProperty("t2uk.parseCache")) ? null
+                : ParseCache.openDefault();
+        String columnProfiles = System.getProperty("t2uk.columnProfiles");
+        return new ExcelReader(commodityCodes, parseCache,
+                columnProfiles == null || columnProfiles.isEmpty() ? ColumnProfiles.defaults()
+                        : ColumnProfiles.load(new File(columnProfiles)));
+    }
+
+    /**
+     * The generator configured by {@code t2uk.schema} and {@code t2uk.parallelWrite}.
+     */
+    static XmlGenerator createXmlGenerator() throws SAXException {
+        String schema = System.getProperty("t2uk.schema");
+        XmlGenerator xmlGenerator = schema == null || schema.isEmpty() ? new XmlGenerator()
+                : new XmlGenerator().withSchema(new File(schema));
+        String parallelWrite = System.getProperty("t2uk.parallelWrite");
+        if (parallelWrite != null && !parallelWrite.isEmpty()) {
+            xmlGenerator = xmlGenerator.withParallelWrite("true".equals(parallelWrite)
+                    ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(parallelWrite));
+        }
+        return xmlGenerator;
+    }
+
+    /**
+     * Opens the reader, generator and AWB index on a background thread, since the parse cache, column profiles,
+     * schema and index all go to disk, hands them to the shown frame and then warms up. AWBs are only checked
+     * with {@code -Dt2uk.awbIndex=<directory>}, or {@code true} for {@code ~/.t2uk/awb-index}.
+     */
+    private static void open(GeneratorFrame frame) {
+        Thread thread = new Thread(() -> {
+            ExcelReader excelReader;
+            XmlGenerator xmlGenerator;
+            try {
+                excelReader = createExcelReader();
+                xmlGenerator = createXmlGenerator();
+            } catch (Exception ex) {
+                String message = ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage();
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame,
+                        "Unable to start the generator:\n" + message, "Error", JOptionPane.ERROR_MESSAGE));
+                return;
+            }
+            // opt-in like --awb-index: an open index is locked for the whole session, keeping batch runs out
+            String awbIndexDirectory = System.getProperty("t2uk.awbIndex");
+            AwbIndex awbIndex = null;
+            String awbIndexError = null;
+            if (awbIndexDirectory != null && !awbIndexDirectory.isEmpty()) {
+                try {
+                    awbIndex = "true".equals(awbIndexDirectory) ? AwbIndex.openDefault()
+                            : AwbIndex.open(new File(awbIndexDirectory));
+                } catch (IOException | IllegalStateException ex) {
+                    awbIndexError = ex.getMessage();
+                }
+            }
+            AwbIndex.Policy awbPolicy = "block".equals(System.getProperty("t2uk.awbPolicy"))
+                    ? AwbIndex.Policy.BLOCK : AwbIndex.Policy.WARN;
+            AwbIndex openedIndex = awbIndex;
+            String indexError = awbIndexError;
+            SwingUtilities.invokeLater(() -> {
+                frame.setServices(excelReader, xmlGenerator, openedIndex, awbPolicy);
+                if (indexError != null) {
+                    JOptionPane.showMessageDialog(frame, "AWBs will not be checked against earlier "
+                            + "declarations:\n" + indexError, "AWB index", JOptionPane.WARNING_MESSAGE);
+                }
+            });
+            warmUp(excelReader, xmlGenerator);
+        }, "open");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Loads logging, JDOM, the template, POI and the tariff index on a background thread, so the frame shows
+     * without waiting for them and they are mostly ready by the time the user has chosen a file. A failure is
+     * ignored here; the first conversion runs into it again and reports it.
+     */
+    static void warmUp(ExcelReader excelReader, XmlGenerator xmlGenerator) {
+        Thread thread = new Thread(() -> {
+            try {
+                Metrics.currentRun();
+                xmlGenerator.warmUp();
+                excelReader.warmUp();
+            } catch (Exception ex) {
+                // reported by the first conversion
+            }
+        }, "warm-up");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
 }
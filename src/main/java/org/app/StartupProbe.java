@@ -0,0 +1,71 @@
+package org.app;
+
+import org.app.excel.ExcelReader;
+import org.app.ui.GeneratorFrame;
+import org.app.xml.XmlGenerator;
+
+import javax.swing.JButton;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import java.awt.GraphicsEnvironment;
+import java.awt.GridBagLayout;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Startup measurement run with {@code -Dt2uk.startupProbe=<borderou>}: starts the desktop application as usual,
+ * prints {@code startup: frame} once the frame has opened, converts the borderou the way a click on Generate
+ * right away would, prints {@code startup: xml} and exits. The startup benchmark timestamps these lines from
+ * outside the JVM. Without a display the frame is skipped, which is how the build runs it to record the AppCDS
+ * archive.
+ */
+final class StartupProbe {
+    private static final String LRN = "00RO000000000000";
+
+    private StartupProbe() {
+    }
+
+    static int run(File borderou) throws Exception {
+        if (!GraphicsEnvironment.isHeadless()) {
+            CountDownLatch opened = new CountDownLatch(1);
+            SwingUtilities.invokeLater(() -> {
+                GeneratorFrame frame = new GeneratorFrame();
+                frame.addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowOpened(WindowEvent e) {
+                        opened.countDown();
+                    }
+                });
+                frame.setVisible(true);
+            });
+            opened.await();
+            System.out.println("startup: frame");
+        } else {
+            // no frame without a display, but its components still load most of Swing and the look and feel
+            SwingUtilities.invokeAndWait(() -> {
+                JPanel panel = new JPanel(new GridBagLayout());
+                panel.add(new JTextField(28));
+                panel.add(new JButton("Generate XML"));
+                panel.add(new JProgressBar());
+            });
+        }
+        ExcelReader excelReader = Main.createExcelReader();
+        XmlGenerator xmlGenerator = Main.createXmlGenerator();
+        Main.warmUp(excelReader, xmlGenerator);
+
+        File output = File.createTempFile("t2uk-startup-", ".xml");
+        try {
+            xmlGenerator.generate(output, LRN, excelReader.read(borderou));
+            System.out.println("startup: xml " + output.length() + " bytes");
+        } finally {
+            if (!output.delete()) {
+                output.deleteOnExit();
+            }
+        }
+        return 0;
+    }
+}
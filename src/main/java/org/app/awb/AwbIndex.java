@@ -0,0 +1,613 @@
+package org.app.awb;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Every AWB declared so far, with the LRN, date and output file of its declaration, so a shipment is not declared
+ * twice. Declarations are appended to {@code awb.dat} and never rewritten. {@code awb-<capacity>.idx} is an
+ * open-addressing hash table over that log, memory-mapped, so opening the index costs the same for a thousand
+ * AWBs as for millions and a lookup touches a page or two. A slot holds the 64-bit hash of an AWB and the
+ * position of its record, which is read back on a hash match to rule out collisions. When the table is half full
+ * it is copied into one twice the size under a new name, since a mapped file cannot be replaced on Windows.
+ * <p>
+ * The table can always be rebuilt from the log: its header records how much of the log it covers, and records
+ * appended after that, e.g. by a process that was killed, are indexed again on open. An open index is held
+ * exclusively by its process.
+ * <p>
+ * Conversions running at the same time claim their AWBs with a {@link Reservation} before writing, so two files of
+ * one batch that share an AWB under different LRNs are caught although neither has been recorded yet.
+ */
+public final class AwbIndex implements Closeable {
+    /**
+     * What a conversion does with items whose AWB was declared before under another LRN.
+     */
+    public enum Policy {
+        WARN,
+        BLOCK
+    }
+
+    private static final int MAGIC = 0x54324157;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int SLOT_BYTES = 16;
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final String DATA_FILE = "awb.dat";
+    private static final String TABLE_PREFIX = "awb-";
+    private static final String TABLE_SUFFIX = ".idx";
+
+    private final File directory;
+    private final FileChannel data;
+    private final FileLock lock;
+    private final Map<String, List<Reservation>> reservations = new HashMap<>();
+    private FileChannel tableChannel;
+    private MappedByteBuffer table;
+    private File tableFile;
+    private int capacity;
+    private int count;
+    private long dataLength;
+
+    private AwbIndex(File directory, FileChannel data, FileLock lock) throws IOException {
+        this.directory = directory;
+        this.data = data;
+        this.lock = lock;
+        if (!openTable()) {
+            createTable(INITIAL_CAPACITY);
+        }
+        indexRecordsFrom(dataLength);
+    }
+
+    /**
+     * Opens the index in {@code directory}, creating it when missing; fails with an IllegalStateException when
+     * another process has it open.
+     */
+    public static AwbIndex open(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create AWB index directory: " + directory);
+        }
+        FileChannel data = FileChannel.open(new File(directory, DATA_FILE).toPath(), StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        try {
+            FileLock lock;
+            try {
+                lock = data.tryLock();
+            } catch (OverlappingFileLockException ex) {
+                lock = null;
+            }
+            if (lock == null) {
+                throw new IllegalStateException("AWB index is in use by another process: " + directory);
+            }
+            return new AwbIndex(directory, data, lock);
+        } catch (IOException | RuntimeException ex) {
+            data.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Opens the per-user index in {@code ~/.t2uk/awb-index}.
+     */
+    public static AwbIndex openDefault() throws IOException {
+        return open(new File(new File(System.getProperty("user.home"), ".t2uk"), "awb-index"));
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Returns every recorded declaration of {@code awb}, oldest first.
+     */
+    public synchronized List<Declaration> find(String awb) throws IOException {
+        String key = normalize(awb);
+        long hash = hash(key);
+        List<Declaration> found = Collections.emptyList();
+        for (int slot = slotOf(hash); ; slot = (slot + 1) & (capacity - 1)) {
+            int position = HEADER_BYTES + slot * SLOT_BYTES;
+            long slotHash = table.getLong(position);
+            if (slotHash == 0) {
+                return found;
+            }
+            if (slotHash == hash) {
+                Declaration declaration = readRecord(table.getLong(position + 8));
+                if (declaration.awb.equals(key)) {
+                    if (found.isEmpty()) {
+                        found = new ArrayList<>(1);
+                    }
+                    found.add(declaration);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the first declaration of {@code awb} under another LRN than {@code lrn}, or {@code null}.
+     * Generating the same declaration again is not a second declaration of its AWBs.
+     */
+    public Declaration previousDeclaration(String awb, String lrn) throws IOException {
+        for (Declaration declaration : find(awb)) {
+            if (!declaration.lrn.equals(lrn)) {
+                return declaration;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the previous declaration, if any, of each of {@code awbs} under another LRN, in the order of
+     * {@code awbs}.
+     */
+    public List<Declaration> check(Collection<String> awbs, String lrn) throws IOException {
+        List<Declaration> previous = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (String awb : awbs) {
+            if (seen.add(normalize(awb))) {
+                Declaration declaration = previousDeclaration(awb, lrn);
+                if (declaration != null) {
+                    previous.add(declaration);
+                }
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Starts an empty reservation for converting {@code source} under {@code lrn}; see {@link #reserve}.
+     */
+    public Reservation newReservation(String lrn, File source) {
+        return new Reservation(lrn, source.getAbsolutePath());
+    }
+
+    /**
+     * Checks {@code awbs} against the recorded declarations and the reservations of other conversions in one step,
+     * and adds them to {@code reservation} unless {@code policy} is {@link Policy#BLOCK} and one was declared, or is
+     * being declared, under another LRN. Returns those earlier or concurrent declarations, in the order of
+     * {@code awbs}; a concurrent one {@link Declaration#isPending() is pending}.
+     */
+    public synchronized List<Declaration> reserve(Reservation reservation, Collection<String> awbs, Policy policy)
+            throws IOException {
+        if (reservation.closed) {
+            throw new IllegalStateException("AWB reservation already committed or released.");
+        }
+        List<Declaration> conflicts = new ArrayList<>();
+        Set<String> keys = new LinkedHashSet<>();
+        for (String awb : awbs) {
+            String key = normalize(awb);
+            if (key.isEmpty() || reservation.keys.contains(key) || !keys.add(key)) {
+                continue;
+            }
+            Declaration previous = previousDeclaration(key, reservation.lrn);
+            if (previous == null) {
+                previous = pendingDeclaration(key, reservation.lrn);
+            }
+            if (previous != null) {
+                conflicts.add(previous);
+            }
+        }
+        if (conflicts.isEmpty() || policy == Policy.WARN) {
+            for (String key : keys) {
+                reservations.computeIfAbsent(key, k -> new ArrayList<>(1)).add(reservation);
+                reservation.keys.add(key);
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Records the reserved AWBs as declared in {@code outputFile} (see {@link #record}) and releases the
+     * reservation.
+     */
+    public synchronized int commit(Reservation reservation, File outputFile) throws IOException {
+        if (reservation.closed) {
+            throw new IllegalStateException("AWB reservation already committed or released.");
+        }
+        try {
+            return record(reservation.keys, reservation.lrn, outputFile);
+        } finally {
+            release(reservation);
+        }
+    }
+
+    /**
+     * Gives up the reserved AWBs without recording them, e.g. when the conversion failed; does nothing once the
+     * reservation was committed or released.
+     */
+    public synchronized void release(Reservation reservation) {
+        if (reservation.closed) {
+            return;
+        }
+        reservation.closed = true;
+        for (String key : reservation.keys) {
+            List<Reservation> holders = reservations.get(key);
+            holders.remove(reservation);
+            if (holders.isEmpty()) {
+                reservations.remove(key);
+            }
+        }
+    }
+
+    private Declaration pendingDeclaration(String key, String lrn) {
+        List<Reservation> holders = reservations.get(key);
+        if (holders != null) {
+            for (Reservation holder : holders) {
+                if (!holder.lrn.equals(lrn)) {
+                    return new Declaration(key, holder.lrn, holder.reservedAt, holder.source, true);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Records {@code awbs} as declared now under {@code lrn} in {@code outputFile}, skipping those already recorded
+     * under the same LRN, and returns how many were recorded. The log is forced to disk before returning.
+     */
+    public synchronized int record(Collection<String> awbs, String lrn, File outputFile) throws IOException {
+        long declaredAt = System.currentTimeMillis();
+        String output = outputFile.getAbsolutePath();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        List<String> keys = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (String awb : awbs) {
+            String key = normalize(awb);
+            if (key.isEmpty() || !seen.add(key) || isRecorded(key, lrn)) {
+                continue;
+            }
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            DataOutputStream record = new DataOutputStream(payload);
+            record.writeLong(declaredAt);
+            record.writeUTF(key);
+            record.writeUTF(lrn);
+            record.writeUTF(output);
+            keys.add(key);
+            offsets.add(dataLength + bytes.size());
+            out.writeInt(payload.size());
+            payload.writeTo(out);
+        }
+        if (keys.isEmpty()) {
+            return 0;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        long position = dataLength;
+        while (buffer.hasRemaining()) {
+            position += data.write(buffer, position);
+        }
+        data.force(false);
+        for (int i = 0; i < keys.size(); i++) {
+            insert(hash(keys.get(i)), offsets.get(i));
+            // a table grown by the next insert covers exactly the records inserted so far
+            dataLength = i + 1 < keys.size() ? offsets.get(i + 1) : position;
+        }
+        writeHeader();
+        return keys.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            table.force();
+            lock.release();
+        } finally {
+            tableChannel.close();
+            data.close();
+        }
+    }
+
+    private boolean isRecorded(String key, String lrn) throws IOException {
+        for (Declaration declaration : find(key)) {
+            if (declaration.lrn.equals(lrn)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Maps the largest valid table in the directory and deletes the others, left behind by growing; returns
+     * {@code false} when there is none.
+     */
+    private boolean openTable() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(TABLE_PREFIX)
+                && name.endsWith(TABLE_SUFFIX));
+        File best = null;
+        int bestCapacity = 0;
+        long bestDataLength = 0;
+        int bestCount = 0;
+        for (File file : files == null ? new File[0] : files) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                if (channel.read(header, 0) < HEADER_BYTES || header.getInt(0) != MAGIC
+                        || header.getInt(4) != VERSION) {
+                    continue;
+                }
+                int fileCapacity = header.getInt(8);
+                long fileDataLength = header.getLong(16);
+                if (fileCapacity > bestCapacity && Integer.bitCount(fileCapacity) == 1
+                        && fileCapacity <= MAX_CAPACITY
+                        && channel.size() == HEADER_BYTES + (long) fileCapacity * SLOT_BYTES
+                        && fileDataLength <= data.size()) {
+                    best = file;
+                    bestCapacity = fileCapacity;
+                    bestCount = header.getInt(12);
+                    bestDataLength = fileDataLength;
+                }
+            }
+        }
+        for (File file : files == null ? new File[0] : files) {
+            if (!file.equals(best) && !file.delete()) {
+                // still mapped by a process on Windows; removed on a later open
+                file.deleteOnExit();
+            }
+        }
+        if (best == null) {
+            return false;
+        }
+        tableFile = best;
+        tableChannel = FileChannel.open(best.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        table = tableChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_BYTES + (long) bestCapacity * SLOT_BYTES);
+        capacity = bestCapacity;
+        count = bestCount;
+        dataLength = bestDataLength;
+        return true;
+    }
+
+    private void createTable(int newCapacity) throws IOException {
+        tableFile = new File(directory, TABLE_PREFIX + newCapacity + TABLE_SUFFIX);
+        tableChannel = FileChannel.open(tableFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        table = tableChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) newCapacity * SLOT_BYTES);
+        capacity = newCapacity;
+        count = 0;
+        dataLength = 0;
+    }
+
+    /**
+     * Indexes the records of the log from {@code offset} on, cutting off a record the previous process did not
+     * finish writing.
+     */
+    private void indexRecordsFrom(long offset) throws IOException {
+        long start = offset;
+        long size = data.size();
+        ByteBuffer length = ByteBuffer.allocate(4);
+        while (offset < size) {
+            length.clear();
+            if (readFully(length, offset) < 4) {
+                break;
+            }
+            int payload = length.getInt(0);
+            if (payload <= 0 || offset + 4 + payload > size) {
+                break;
+            }
+            insert(hash(readRecord(offset).awb), offset);
+            offset += 4 + payload;
+            dataLength = offset;
+        }
+        if (offset < size) {
+            data.truncate(offset);
+        }
+        if (offset != start) {
+            writeHeader();
+        }
+    }
+
+    private Declaration readRecord(long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        if (readFully(length, offset) < 4) {
+            throw new EOFException("AWB index record beyond the end of " + DATA_FILE + ": " + offset);
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length.getInt(0));
+        if (readFully(payload, offset + 4) < payload.capacity()) {
+            throw new EOFException("AWB index record beyond the end of " + DATA_FILE + ": " + offset);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.array()));
+        long declaredAt = in.readLong();
+        return new Declaration(in.readUTF(), in.readUTF(), declaredAt, in.readUTF(), false);
+    }
+
+    private int readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (data.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.position();
+    }
+
+    private void insert(long hash, long offset) throws IOException {
+        if ((count + 1) * 2L > capacity) {
+            grow();
+        }
+        put(table, capacity, hash, offset);
+        count++;
+    }
+
+    private static void put(MappedByteBuffer table, int capacity, long hash, long offset) {
+        for (int slot = (int) hash & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+            int position = HEADER_BYTES + slot * SLOT_BYTES;
+            if (table.getLong(position) == 0) {
+                table.putLong(position + 8, offset);
+                table.putLong(position, hash);
+                return;
+            }
+        }
+    }
+
+    private void grow() throws IOException {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("AWB index is full: " + directory);
+        }
+        MappedByteBuffer oldTable = table;
+        FileChannel oldChannel = tableChannel;
+        File oldFile = tableFile;
+        int oldCapacity = capacity;
+        int oldCount = count;
+        long oldDataLength = dataLength;
+        createTable(oldCapacity * 2);
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            int position = HEADER_BYTES + slot * SLOT_BYTES;
+            long hash = oldTable.getLong(position);
+            if (hash != 0) {
+                put(table, capacity, hash, oldTable.getLong(position + 8));
+            }
+        }
+        count = oldCount;
+        dataLength = oldDataLength;
+        writeHeader();
+        oldChannel.close();
+        if (!oldFile.delete()) {
+            // still mapped; the next open deletes it
+            oldFile.deleteOnExit();
+        }
+    }
+
+    /**
+     * Forces the slots to disk before the header that makes them valid.
+     */
+    private void writeHeader() {
+        table.force();
+        table.putInt(4, VERSION);
+        table.putInt(8, capacity);
+        table.putInt(12, count);
+        table.putLong(16, dataLength);
+        table.putInt(0, MAGIC);
+        table.force();
+    }
+
+    private int slotOf(long hash) {
+        return (int) hash & (capacity - 1);
+    }
+
+    private static String normalize(String awb) {
+        return awb == null ? "" : awb.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * FNV-1a over the characters, finished with the MurmurHash3 mixer so the low bits used for the slot depend on
+     * every character; never 0, which marks an empty slot.
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * AWBs claimed by one conversion that is still running; obtained from {@link #newReservation}, filled by
+     * {@link #reserve} and ended by {@link #commit} or {@link #release}.
+     */
+    public static final class Reservation {
+        private final String lrn;
+        private final String source;
+        private final long reservedAt = System.currentTimeMillis();
+        private final Set<String> keys = new LinkedHashSet<>();
+        private boolean closed;
+
+        private Reservation(String lrn, String source) {
+            this.lrn = lrn;
+            this.source = source;
+        }
+
+        public String getLrn() {
+            return lrn;
+        }
+    }
+
+    /**
+     * One recorded declaration of an AWB, or a pending one: a conversion in progress that has reserved it.
+     */
+    public static final class Declaration {
+        private final String awb;
+        private final String lrn;
+        private final long declaredAt;
+        private final String outputFile;
+        private final boolean pending;
+
+        private Declaration(String awb, String lrn, long declaredAt, String outputFile, boolean pending) {
+            this.awb = awb;
+            this.lrn = lrn;
+            this.declaredAt = declaredAt;
+            this.outputFile = outputFile;
+            this.pending = pending;
+        }
+
+        public String getAwb() {
+            return awb;
+        }
+
+        public String getLrn() {
+            return lrn;
+        }
+
+        /**
+         * Milliseconds since the epoch.
+         */
+        public long getDeclaredAt() {
+            return declaredAt;
+        }
+
+        public LocalDate getDeclaredDate() {
+            return Instant.ofEpochMilli(declaredAt).atZone(ZoneId.systemDefault()).toLocalDate();
+        }
+
+        /**
+         * The declaration file, or for a pending declaration the borderou being converted.
+         */
+        public String getOutputFile() {
+            return outputFile;
+        }
+
+        /**
+         * Whether the declaration is still being generated by a conversion running at the same time.
+         */
+        public boolean isPending() {
+            return pending;
+        }
+
+        @Override
+        public String toString() {
+            if (pending) {
+                return "AWB " + awb + " is being declared at the same time under LRN " + lrn + " (" + outputFile + ")";
+            }
+            return "AWB " + awb + " already declared under LRN " + lrn + " on " + getDeclaredDate() + " ("
+                    + outputFile + ")";
+        }
+    }
+}
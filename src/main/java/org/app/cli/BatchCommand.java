@@ -0,0 +1,281 @@
+package org.app.cli;
+
+import org.app.awb.AwbIndex;
+import org.app.excel.ColumnProfiles;
+import org.app.excel.ExcelReader;
+import org.app.metrics.Metrics;
+import org.app.model.CodeIssue;
+import org.app.tariff.CommodityCodes;
+import org.app.xml.SchemaIssue;
+import org.app.xml.XmlGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Headless conversion of many borderouri at once ({@code --batch}, see the usage in {@link #run}): files are
+ * converted on a fixed pool and a per-file summary is printed at the end.
+ * <p>
+ * {@code --lrn-map} gives the LRN of each file (see {@link LrnMapping}). {@code --out} is the output directory,
+ * by default next to each file. {@code --threads} sizes the pool, by default to the available cores.
+ * {@code --max-items} splits larger borderouri into several declarations. {@code --pipelined} writes each file while
+ * it is still being read. {@code --hs-db} lists HS codes missing from or expired in that tariff database.
+ * {@code --xsd} validates every declaration against the CC015C schema. {@code --profiles} adds the column layouts of
+ * that file (see {@link ColumnProfiles}). {@code --awb-index} records every AWB in that {@link AwbIndex}; a file
+ * with an AWB declared under another LRN fails, or with {@code --awb-policy warn} is converted with a warning.
+ * {@code --parallel-write} encodes the items of each large declaration on that many threads.
+ */
+public class BatchCommand {
+    private final ExcelReader excelReader;
+    private final XmlGenerator xmlGenerator;
+    private final PrintStream out;
+
+    public BatchCommand(ExcelReader excelReader, XmlGenerator xmlGenerator, PrintStream out) {
+        this.excelReader = excelReader;
+        this.xmlGenerator = xmlGenerator;
+        this.out = out;
+    }
+
+    /**
+     * Runs the command and returns the process exit code: 0 when every file converted, 1 otherwise.
+     */
+    public int run(String[] args) throws Exception {
+        String input = null;
+        File mappingFile = null;
+        File outputDirectory = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxItems = 0;
+        boolean pipelined = false;
+        File tariffDatabase = null;
+        File schemaFile = null;
+        File profilesFile = null;
+        File awbIndexDirectory = null;
+        AwbIndex.Policy awbPolicy = AwbIndex.Policy.BLOCK;
+        int writeParallelism = 1;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--awb-index":
+                    awbIndexDirectory = new File(value(args, ++i));
+                    break;
+                case "--awb-policy":
+                    awbPolicy = awbPolicy(value(args, ++i));
+                    break;
+                case "--lrn-map":
+                    mappingFile = new File(value(args, ++i));
+                    break;
+                case "--hs-db":
+                    tariffDatabase = new File(value(args, ++i));
+                    break;
+                case "--profiles":
+                    profilesFile = new File(value(args, ++i));
+                    break;
+                case "--xsd":
+                    schemaFile = new File(value(args, ++i));
+                    break;
+                case "--out":
+                    outputDirectory = new File(value(args, ++i));
+                    break;
+                case "--max-items":
+                    maxItems = Integer.parseInt(value(args, ++i));
+                    break;
+                case "--pipelined":
+                    pipelined = true;
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value(args, ++i));
+                    break;
+                case "--parallel-write":
+                    writeParallelism = Integer.parseInt(value(args, ++i));
+                    break;
+                default:
+                    if (input != null) {
+                        throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+                    }
+                    input = args[i];
+                    break;
+            }
+        }
+        if (input == null || mappingFile == null) {
+            throw new IllegalArgumentException(
+                    "Usage: --batch <directory|glob> --lrn-map <file> [--out <directory>] [--threads <n>]"
+                            + " [--max-items <n>] [--pipelined] [--hs-db <file.accdb>] [--xsd <file>]"
+                            + " [--profiles <file>] [--awb-index <directory>] [--awb-policy block|warn]"
+                            + " [--parallel-write <n>]");
+        }
+        if (outputDirectory != null && !outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Unable to create output directory: " + outputDirectory);
+        }
+
+        LrnMapping lrns = LrnMapping.load(mappingFile);
+        List<File> files = findExcelFiles(input);
+        if (files.isEmpty()) {
+            out.println("No Excel files found for " + input);
+            return 1;
+        }
+
+        ExcelReader reader = excelReader;
+        if (tariffDatabase != null || profilesFile != null) {
+            reader = new ExcelReader(tariffDatabase == null ? null : new CommodityCodes(tariffDatabase), null,
+                    profilesFile == null ? ColumnProfiles.defaults() : ColumnProfiles.load(profilesFile));
+        }
+        XmlGenerator generator = schemaFile != null ? xmlGenerator.withSchema(schemaFile) : xmlGenerator;
+        if (writeParallelism > 1) {
+            generator = generator.withParallelWrite(writeParallelism);
+        }
+        AwbIndex awbIndex = awbIndexDirectory == null ? null : AwbIndex.open(awbIndexDirectory);
+        FileConverter converter = new FileConverter(reader, generator, maxItems, pipelined, awbIndex, awbPolicy);
+        long started = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, files.size())));
+        List<Future<FileConverter.Result>> futures = new ArrayList<>();
+        try {
+            for (File file : files) {
+                File target = outputDirectory != null ? outputDirectory : file.getAbsoluteFile().getParentFile();
+                futures.add(pool.submit(() -> converter.convert(file, lrns.lrnFor(file), target)));
+            }
+            List<FileConverter.Result> results = new ArrayList<>();
+            for (Future<FileConverter.Result> future : futures) {
+                results.add(future.get());
+            }
+            int exitCode = printSummary(results, System.nanoTime() - started);
+            Metrics.logPercentiles();
+            return exitCode;
+        } finally {
+            pool.shutdownNow();
+            if (awbIndex != null) {
+                awbIndex.close();
+            }
+        }
+    }
+
+    private int printSummary(List<FileConverter.Result> results, long totalNanos) {
+        int failed = 0;
+        out.println(String.format(Locale.ROOT, "%-40s %-20s %8s %9s %9s  %s",
+                "File", "LRN", "Items", "Read ms", "Write ms", "Result"));
+        for (FileConverter.Result result : results) {
+            String outcome;
+            if (result.isSuccess()) {
+                outcome = result.parts > 1 ? result.output.getName() + " (" + result.parts + " parts)"
+                        : result.output.getName();
+            } else {
+                outcome = "FAILED: " + result.error;
+                failed++;
+            }
+            out.println(String.format(Locale.ROOT, "%-40s %-20s %8d %9d %9d  %s",
+                    result.file.getName(), result.lrn == null ? "-" : result.lrn, result.items,
+                    result.readNanos / 1_000_000, result.writeNanos / 1_000_000, outcome));
+        }
+        for (FileConverter.Result result : results) {
+            for (CodeIssue issue : result.codeIssues) {
+                out.println("WARNING " + result.file.getName() + ": " + issue);
+            }
+            for (SchemaIssue issue : result.schemaIssues) {
+                out.println("ERROR " + result.file.getName() + ": " + issue);
+            }
+            for (AwbIndex.Declaration declaration : result.redeclared) {
+                out.println((result.isSuccess() ? "WARNING " : "ERROR ") + result.file.getName() + ": "
+                        + declaration);
+            }
+        }
+        out.println(String.format(Locale.ROOT, "%d file(s), %d converted, %d failed in %d ms",
+                results.size(), results.size() - failed, failed, totalNanos / 1_000_000));
+        return failed == 0 ? 0 : 1;
+    }
+
+    /**
+     * Resolves a directory (its .xls/.xlsx/.csv/.tsv files) or a glob such as {@code in/*.xlsx} or {@code in/**.xlsx}.
+     */
+    static List<File> findExcelFiles(String input) throws IOException {
+        // a glob is not a valid path everywhere (Windows rejects '*' and '?'), so look for one first
+        int wildcard = indexOfWildcard(input);
+        if (wildcard < 0) {
+            Path path = Paths.get(input);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> entries = Files.list(path)) {
+                    return entries.filter(Files::isRegularFile)
+                            .filter(BatchCommand::isExcelFile)
+                            .sorted()
+                            .map(Path::toFile)
+                            .collect(Collectors.toList());
+                }
+            }
+            List<File> single = new ArrayList<>();
+            if (Files.isRegularFile(path)) {
+                single.add(path.toFile());
+            }
+            return single;
+        }
+
+        int separator = Math.max(input.lastIndexOf('/', wildcard), input.lastIndexOf('\\', wildcard));
+        Path base = Paths.get(separator < 0 ? "" : input.substring(0, separator + 1)).toAbsolutePath();
+        if (!Files.isDirectory(base)) {
+            return new ArrayList<>();
+        }
+        String directory = base.toString();
+        String pattern = (directory.endsWith(File.separator) ? directory : directory + File.separator)
+                + input.substring(separator + 1);
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern.replace("\\", "\\\\"));
+        try (Stream<Path> entries = Files.walk(base)) {
+            return entries.filter(Files::isRegularFile)
+                    .filter(matcher::matches)
+                    .filter(BatchCommand::isExcelFile)
+                    .sorted()
+                    .map(Path::toFile)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Whether {@code path} looks like a borderou: a spreadsheet or CSV/TSV export that is neither an Excel lock file
+     * nor something this tool wrote, such as the index of a split declaration.
+     */
+    static boolean isExcelFile(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.startsWith("~$") || name.startsWith(XmlGenerator.OUTPUT_PREFIX.toLowerCase(Locale.ROOT))
+                || name.endsWith(XmlGenerator.INDEX_SUFFIX)) {
+            return false;
+        }
+        return name.endsWith(".xlsx") || name.endsWith(".xls") || name.endsWith(".csv") || name.endsWith(".tsv");
+    }
+
+    private static int indexOfWildcard(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static AwbIndex.Policy awbPolicy(String value) {
+        switch (value) {
+            case "block":
+                return AwbIndex.Policy.BLOCK;
+            case "warn":
+                return AwbIndex.Policy.WARN;
+            default:
+                throw new IllegalArgumentException("--awb-policy must be block or warn: " + value);
+        }
+    }
+
+    static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+}
@@ -0,0 +1,207 @@
+package org.app.cli;
+
+import org.app.awb.AwbIndex;
+import org.app.excel.ExcelReader;
+import org.app.metrics.Metrics;
+import org.app.metrics.Run;
+import org.app.model.CodeIssue;
+import org.app.model.ExcelData;
+import org.app.model.Item;
+import org.app.model.ProgressListener;
+import org.app.xml.SchemaIssue;
+import org.app.xml.SchemaValidationException;
+import org.app.xml.XmlGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Converts a single borderou into a new output file and records timings; used by the headless modes.
+ */
+class FileConverter {
+    private static final int PIPELINE_QUEUE_CAPACITY = 1024;
+
+    private final ExcelReader excelReader;
+    private final XmlGenerator xmlGenerator;
+    private final int maxItems;
+    private final boolean pipelined;
+    private final AwbIndex awbIndex;
+    private final AwbIndex.Policy awbPolicy;
+
+    /**
+     * @param maxItems  maximum items per declaration; larger borderouri are split, 0 never splits
+     * @param pipelined write items while the borderou is still being read instead of reading it whole first;
+     *                  only used when not splitting, and the overlapped time is reported as write time
+     */
+    FileConverter(ExcelReader excelReader, XmlGenerator xmlGenerator, int maxItems, boolean pipelined) {
+        this(excelReader, xmlGenerator, maxItems, pipelined, null, AwbIndex.Policy.WARN);
+    }
+
+    /**
+     * @param awbIndex  AWBs declared before, checked for every item and updated after every conversion, or
+     *                  {@code null}
+     * @param awbPolicy whether an AWB declared before under another LRN fails the conversion or is only reported
+     */
+    FileConverter(ExcelReader excelReader, XmlGenerator xmlGenerator, int maxItems, boolean pipelined,
+                  AwbIndex awbIndex, AwbIndex.Policy awbPolicy) {
+        this.excelReader = excelReader;
+        this.xmlGenerator = xmlGenerator;
+        this.maxItems = maxItems;
+        this.pipelined = pipelined;
+        this.awbIndex = awbIndex;
+        this.awbPolicy = awbPolicy;
+    }
+
+    Result convert(File excelFile, String lrn, File outputDirectory) {
+        Result result = new Result(excelFile, lrn);
+        if (lrn == null || lrn.isEmpty()) {
+            result.error = "No LRN mapped";
+            return result;
+        }
+        File outputFile = null;
+        // claims the AWBs until they are recorded, so a file converted at the same time cannot declare them too
+        AwbIndex.Reservation reservation = awbIndex == null ? null : awbIndex.newReservation(lrn, excelFile);
+        Run run = Metrics.run(excelFile.getName());
+        try {
+            if (pipelined && maxItems == 0) {
+                outputFile = xmlGenerator.createOutputFile(outputDirectory, excelFile);
+                convertPipelined(result, outputFile, reservation);
+                if (result.isSuccess()) {
+                    result.output = outputFile;
+                    if (reservation != null) {
+                        awbIndex.commit(reservation, outputFile);
+                    }
+                    return result;
+                }
+                run.failed(result.error);
+                outputFile.delete();
+                return result;
+            }
+
+            long start = System.nanoTime();
+            ExcelData data = excelReader.read(excelFile);
+            result.readNanos = System.nanoTime() - start;
+            result.items = data.getItems().size();
+            result.codeIssues = data.getCodeIssues();
+            if (data.getItems().isEmpty()) {
+                result.error = "No valid rows found";
+                run.failed(result.error);
+                return result;
+            }
+            if (reservation != null) {
+                List<String> awbs = new ArrayList<>();
+                for (Item item : data.getItems()) {
+                    awbs.add(item.getAwb());
+                }
+                result.redeclared = awbIndex.reserve(reservation, awbs, awbPolicy);
+                if (!result.redeclared.isEmpty() && awbPolicy == AwbIndex.Policy.BLOCK) {
+                    result.error = redeclaredMessage(result.redeclared.size());
+                    run.failed(result.error);
+                    return result;
+                }
+            }
+
+            start = System.nanoTime();
+            if (maxItems > 0 && data.getItems().size() > maxItems) {
+                outputFile = xmlGenerator.createOutputFile(outputDirectory, excelFile, XmlGenerator.INDEX_SUFFIX);
+                result.parts = xmlGenerator.generateSplit(outputFile, lrn, data, maxItems).size();
+            } else {
+                outputFile = xmlGenerator.createOutputFile(outputDirectory, excelFile);
+                xmlGenerator.generate(outputFile, lrn, data);
+            }
+            result.writeNanos = System.nanoTime() - start;
+            result.output = outputFile;
+            if (reservation != null) {
+                awbIndex.commit(reservation, outputFile);
+            }
+        } catch (Exception ex) {
+            result.error = ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage();
+            if (ex instanceof SchemaValidationException) {
+                result.schemaIssues = ((SchemaValidationException) ex).getIssues();
+            }
+            run.failed(result.error);
+            if (outputFile != null && !outputFile.delete()) {
+                outputFile.deleteOnExit();
+            }
+        } finally {
+            if (reservation != null) {
+                awbIndex.release(reservation);
+            }
+            run.close();
+        }
+        return result;
+    }
+
+    /**
+     * With an AWB index, every item is checked and reserved as it is read, and with the blocking policy the first
+     * one declared before, or being declared by another conversion, stops the conversion.
+     */
+    private void convertPipelined(Result result, File outputFile, AwbIndex.Reservation reservation)
+            throws Exception {
+        List<CodeIssue> codeIssues = Collections.synchronizedList(new ArrayList<>());
+        List<AwbIndex.Declaration> redeclared = Collections.synchronizedList(new ArrayList<>());
+        long start = System.nanoTime();
+        try {
+            result.items = xmlGenerator.generatePipelined(outputFile, result.lrn,
+                    sink -> excelReader.read(result.file, item -> {
+                        if (reservation != null) {
+                            reserveAwb(item, reservation, redeclared);
+                        }
+                        sink.accept(item);
+                    }, codeIssues::add), PIPELINE_QUEUE_CAPACITY, ProgressListener.NONE);
+        } finally {
+            result.writeNanos = System.nanoTime() - start;
+            result.codeIssues = codeIssues;
+            result.redeclared = redeclared;
+        }
+        if (result.items == 0) {
+            result.error = "No valid rows found";
+        }
+    }
+
+    private void reserveAwb(Item item, AwbIndex.Reservation reservation, List<AwbIndex.Declaration> redeclared) {
+        List<AwbIndex.Declaration> declarations;
+        try {
+            declarations = awbIndex.reserve(reservation, Collections.singletonList(item.getAwb()), awbPolicy);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (!declarations.isEmpty()) {
+            redeclared.addAll(declarations);
+            if (awbPolicy == AwbIndex.Policy.BLOCK) {
+                throw new IllegalStateException(redeclaredMessage(redeclared.size()));
+            }
+        }
+    }
+
+    private static String redeclaredMessage(int count) {
+        return count + " AWB(s) already declared under another LRN";
+    }
+
+    static final class Result {
+        final File file;
+        final String lrn;
+        int items;
+        int parts = 1;
+        List<CodeIssue> codeIssues = Collections.emptyList();
+        List<SchemaIssue> schemaIssues = Collections.emptyList();
+        List<AwbIndex.Declaration> redeclared = Collections.emptyList();
+        long readNanos;
+        long writeNanos;
+        File output;
+        String error;
+
+        private Result(File file, String lrn) {
+            this.file = file;
+            this.lrn = lrn;
+        }
+
+        boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
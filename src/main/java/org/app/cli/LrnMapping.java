@@ -0,0 +1,63 @@
+package org.app.cli;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps Excel file names to LRNs. The mapping file has one {@code file name,LRN} pair per line
+ * ({@code ;} or a tab also work as separator); blank lines and lines starting with {@code #} are ignored.
+ * A file matches by its full name or by its name without extension, ignoring case.
+ */
+public class LrnMapping {
+    private final Map<String, String> lrns;
+
+    private LrnMapping(Map<String, String> lrns) {
+        this.lrns = lrns;
+    }
+
+    public static LrnMapping load(File mappingFile) throws IOException {
+        Map<String, String> lrns = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(mappingFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String text = line.trim();
+                if (text.isEmpty() || text.startsWith("#")) {
+                    continue;
+                }
+                int separator = Math.max(text.lastIndexOf(','),
+                        Math.max(text.lastIndexOf(';'), text.lastIndexOf('\t')));
+                if (separator <= 0 || separator == text.length() - 1) {
+                    throw new IllegalArgumentException("Invalid LRN mapping on line " + lineNumber + ": " + line);
+                }
+                String name = text.substring(0, separator).trim();
+                String lrn = text.substring(separator + 1).trim();
+                lrns.put(key(name), lrn);
+            }
+        }
+        return new LrnMapping(lrns);
+    }
+
+    public String lrnFor(File excelFile) {
+        String name = excelFile.getName();
+        String lrn = lrns.get(key(name));
+        if (lrn == null) {
+            int dot = name.lastIndexOf('.');
+            if (dot > 0) {
+                lrn = lrns.get(key(name.substring(0, dot)));
+            }
+        }
+        return lrn;
+    }
+
+    private static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,107 @@
+package org.app.cli;
+
+import org.app.excel.ParseCache;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent record of the files the watch mode has converted: one tab-separated
+ * {@code path, size, mtime, sha256, output} line per conversion, appended as it happens. The newest line
+ * for a path wins; the file is compacted when it is opened.
+ */
+class ProcessedLedger {
+    private final Path file;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private BufferedWriter writer;
+
+    private ProcessedLedger(Path file) {
+        this.file = file;
+    }
+
+    static ProcessedLedger open(Path file) throws IOException {
+        ProcessedLedger ledger = new ProcessedLedger(file);
+        if (Files.exists(file)) {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length < 5) {
+                    continue;
+                }
+                try {
+                    ledger.entries.put(fields[0], new Entry(Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                            fields[3], fields[4]));
+                } catch (NumberFormatException ex) {
+                    // a partially written last line after a crash; the file is simply converted again
+                }
+            }
+            if (lines.size() > ledger.entries.size()) {
+                ledger.compact();
+            }
+        }
+        ledger.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        return ledger;
+    }
+
+    synchronized Entry get(Path path) {
+        return entries.get(key(path));
+    }
+
+    synchronized void record(Path path, long size, long modified, String hash, String output) throws IOException {
+        Entry entry = new Entry(size, modified, hash, output);
+        entries.put(key(path), entry);
+        writer.write(line(key(path), entry));
+        writer.newLine();
+        writer.flush();
+    }
+
+    synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    static String sha256(Path path) throws IOException {
+        return ParseCache.sha256(path);
+    }
+
+    private void compact() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                out.write(line(entry.getKey(), entry.getValue()));
+                out.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    private static String line(String key, Entry entry) {
+        return key + "\t" + entry.size + "\t" + entry.modified + "\t" + entry.hash + "\t" + entry.output;
+    }
+
+    static final class Entry {
+        final long size;
+        final long modified;
+        final String hash;
+        final String output;
+
+        private Entry(long size, long modified, String hash, String output) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+            this.output = output;
+        }
+    }
+}
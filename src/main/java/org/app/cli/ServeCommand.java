@@ -0,0 +1,318 @@
+package org.app.cli;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.app.excel.ColumnProfiles;
+import org.app.excel.ExcelReader;
+import org.app.metrics.Metrics;
+import org.app.metrics.Run;
+import org.app.model.ExcelData;
+import org.app.tariff.CommodityCodes;
+import org.app.xml.SchemaIssue;
+import org.app.xml.SchemaValidationException;
+import org.app.xml.XmlGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP conversion service:
+ * {@code --serve [--port <n>] [--bind <address>] [--threads <n>] [--queue <n>] [--max-upload-mb <n>]
+ * [--hs-db <file.accdb>] [--xsd <file>] [--profiles <file>]}.
+ * {@code POST /convert?lrn=<LRN>} takes the borderou as the raw request body (.xlsx or .xls; CSV/TSV exports with
+ * {@code Content-Type: text/csv} or {@code text/tab-separated-values}) and answers with the CC015C declaration.
+ * Conversions run on a fixed pool with a bounded queue; when both are full, requests are answered at once with 503
+ * and {@code Retry-After}. The template, schema and tariff index are loaded before the first request and shared.
+ * {@code GET /health} answers {@code ok}.
+ */
+public class ServeCommand {
+    private static final DateTimeFormatter LOG_STAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int DEFAULT_PORT = 8085;
+    private static final int DEFAULT_MAX_UPLOAD_MB = 50;
+
+    private final ExcelReader excelReader;
+    private final XmlGenerator xmlGenerator;
+    private final PrintStream out;
+
+    private ExcelReader reader;
+    private XmlGenerator generator;
+    private long maxUploadBytes;
+    private ThreadPoolExecutor workers;
+
+    public ServeCommand(ExcelReader excelReader, XmlGenerator xmlGenerator, PrintStream out) {
+        this.excelReader = excelReader;
+        this.xmlGenerator = xmlGenerator;
+        this.out = out;
+    }
+
+    public int run(String[] args) throws Exception {
+        String bind = "127.0.0.1";
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queue = -1;
+        int maxUploadMb = DEFAULT_MAX_UPLOAD_MB;
+        File tariffDatabase = null;
+        File schemaFile = null;
+        File profilesFile = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(BatchCommand.value(args, ++i));
+                    break;
+                case "--bind":
+                    bind = BatchCommand.value(args, ++i);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(BatchCommand.value(args, ++i));
+                    break;
+                case "--queue":
+                    queue = Integer.parseInt(BatchCommand.value(args, ++i));
+                    break;
+                case "--max-upload-mb":
+                    maxUploadMb = Integer.parseInt(BatchCommand.value(args, ++i));
+                    break;
+                case "--hs-db":
+                    tariffDatabase = new File(BatchCommand.value(args, ++i));
+                    break;
+                case "--xsd":
+                    schemaFile = new File(BatchCommand.value(args, ++i));
+                    break;
+                case "--profiles":
+                    profilesFile = new File(BatchCommand.value(args, ++i));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Usage: --serve [--port <n>] [--bind <address>] [--threads <n>]"
+                            + " [--queue <n>] [--max-upload-mb <n>] [--hs-db <file.accdb>] [--xsd <file>]"
+                            + " [--profiles <file>]");
+            }
+        }
+        threads = Math.max(1, threads);
+        maxUploadBytes = Math.max(1, maxUploadMb) * 1024L * 1024;
+
+        reader = excelReader;
+        if (tariffDatabase != null || profilesFile != null) {
+            CommodityCodes commodityCodes = tariffDatabase == null ? null : new CommodityCodes(tariffDatabase);
+            if (commodityCodes != null) {
+                commodityCodes.current();
+            }
+            reader = new ExcelReader(commodityCodes, null,
+                    profilesFile == null ? ColumnProfiles.defaults() : ColumnProfiles.load(profilesFile));
+        }
+        generator = schemaFile != null ? xmlGenerator.withSchema(schemaFile) : xmlGenerator;
+        generator.warmUp();
+
+        AtomicInteger workerNumber = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue < 0 ? threads * 2 : Math.max(1, queue)), task -> {
+                    Thread thread = new Thread(task, "convert-" + workerNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // the handlers only admit requests and run on the server's dispatcher thread; conversions run on the workers
+        HttpServer server = HttpServer.create(new InetSocketAddress(bind, port), 0);
+        server.createContext("/convert", this::admit);
+        server.createContext("/health", exchange -> respond(exchange, 200, "ok"));
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            workers.shutdown();
+            try {
+                workers.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException ignored) {
+                // shutting down anyway
+            }
+            Metrics.logPercentiles();
+            stopped.countDown();
+        }));
+        server.start();
+        log("Listening on http://" + bind + ":" + server.getAddress().getPort() + "/convert with " + threads
+                + " worker(s), queue " + workers.getQueue().remainingCapacity());
+        stopped.await();
+        return 0;
+    }
+
+    private void admit(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            respond(exchange, 405, "Use POST with the borderou as the request body.");
+            return;
+        }
+        String lrn = queryParameter(exchange, "lrn");
+        if (lrn == null || lrn.trim().isEmpty()) {
+            respond(exchange, 400, "Missing lrn query parameter.");
+            return;
+        }
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null && length.trim().matches("\\d+") && Long.parseLong(length.trim()) > maxUploadBytes) {
+            respond(exchange, 413, "Upload larger than " + maxUploadBytes / (1024 * 1024) + " MB.");
+            return;
+        }
+        try {
+            workers.execute(() -> convert(exchange, lrn.trim()));
+        } catch (RejectedExecutionException ex) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 503, "All workers are busy, retry later.");
+        }
+    }
+
+    private void convert(HttpExchange exchange, String lrn) {
+        long start = System.nanoTime();
+        int items = 0;
+        Path upload = null;
+        Path output = null;
+        Run run = Metrics.run("http " + lrn);
+        try {
+            upload = Files.createTempFile("t2uk-upload", uploadSuffix(exchange));
+            if (!copyBounded(exchange.getRequestBody(), upload)) {
+                run.failed("upload too large");
+                respond(exchange, 413, "Upload larger than " + maxUploadBytes / (1024 * 1024) + " MB.");
+                return;
+            }
+            ExcelData data = reader.read(upload.toFile());
+            items = data.getItems().size();
+            if (data.getItems().isEmpty()) {
+                run.failed("No valid rows found");
+                respond(exchange, 422, "No valid rows found.");
+                return;
+            }
+            output = Files.createTempFile("t2uk-output", ".xml");
+            generator.generate(output.toFile(), lrn, data);
+
+            exchange.getResponseHeaders().set("Content-Type", "application/xml; charset=UTF-8");
+            exchange.getResponseHeaders().set("Content-Disposition",
+                    "attachment; filename=\"T2-" + lrn.replaceAll("[^A-Za-z0-9_-]", "_") + ".xml\"");
+            exchange.getResponseHeaders().set("X-Item-Count", String.valueOf(data.getItems().size()));
+            exchange.getResponseHeaders().set("X-Code-Issues", String.valueOf(data.getCodeIssues().size()));
+            exchange.sendResponseHeaders(200, Files.size(output));
+            try (OutputStream body = exchange.getResponseBody()) {
+                Files.copy(output, body);
+            }
+        } catch (SchemaValidationException ex) {
+            run.failed(ex.getMessage());
+            StringBuilder message = new StringBuilder(ex.getMessage()).append('\n');
+            for (SchemaIssue issue : ex.getIssues()) {
+                message.append(issue).append('\n');
+            }
+            respondQuietly(exchange, 422, message.toString());
+        } catch (IllegalArgumentException ex) {
+            run.failed(ex.getMessage());
+            respondQuietly(exchange, 422, ex.getMessage());
+        } catch (Exception ex) {
+            String message = ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage();
+            run.failed(message);
+            respondQuietly(exchange, 500, message);
+        } finally {
+            run.close();
+            deleteQuietly(upload);
+            deleteQuietly(output);
+            exchange.close();
+            log(String.format(Locale.ROOT, "%s -> %d (%d items, %d ms)", lrn, exchange.getResponseCode(), items,
+                    (System.nanoTime() - start) / 1_000_000));
+        }
+    }
+
+    /**
+     * Copies the request body to {@code target}; returns false, leaving the rest unread, once it exceeds the
+     * upload limit, which also covers chunked uploads without a Content-Length.
+     */
+    private boolean copyBounded(InputStream body, Path target) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        try (OutputStream file = Files.newOutputStream(target)) {
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                total += read;
+                if (total > maxUploadBytes) {
+                    return false;
+                }
+                file.write(buffer, 0, read);
+            }
+        }
+        return true;
+    }
+
+    private static String uploadSuffix(HttpExchange exchange) {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        contentType = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        if (contentType.startsWith("text/csv")) {
+            return ".csv";
+        }
+        if (contentType.startsWith("text/tab-separated-values")) {
+            return ".tsv";
+        }
+        // .xlsx and .xls are told apart by their content
+        return ".xlsx";
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) throws UnsupportedEncodingException {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            if (name.equals(URLDecoder.decode(key, "UTF-8"))) {
+                return equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), "UTF-8");
+            }
+        }
+        return null;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    /**
+     * Responds unless a response was already started, e.g. when the client went away while receiving it.
+     */
+    private static void respondQuietly(HttpExchange exchange, int status, String message) {
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        try {
+            respond(exchange, status, message);
+        } catch (IOException ignored) {
+            // the client is gone
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            path.toFile().deleteOnExit();
+        }
+    }
+
+    private synchronized void log(String message) {
+        out.println(LocalDateTime.now().format(LOG_STAMP) + " " + message);
+    }
+}
@@ -0,0 +1,329 @@
+package org.app.cli;
+
+import org.app.awb.AwbIndex;
+import org.app.excel.ColumnProfiles;
+import org.app.excel.ExcelReader;
+import org.app.metrics.Metrics;
+import org.app.model.CodeIssue;
+import org.app.tariff.CommodityCodes;
+import org.app.xml.SchemaIssue;
+import org.app.xml.XmlGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Long-running watch mode:
+ * {@code --watch <inbox> --lrn-map <file> [--out <outbox>] [--ledger <file>] [--settle-seconds <n>] [--threads <n>]
+ * [--max-items <n>] [--pipelined] [--hs-db <file.accdb>] [--xsd <file>] [--profiles <file>]
+ * [--awb-index <directory>] [--awb-policy block|warn]}.
+ * New or changed Excel files in the inbox are converted once their size and modification time have been stable
+ * for the settle period. Converted files are recorded in a {@link ProcessedLedger} so a restart only picks up
+ * files that are new or whose content changed.
+ */
+public class WatchCommand {
+    private static final DateTimeFormatter LOG_STAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final long PERCENTILE_MINUTES = 15;
+
+    private final ExcelReader excelReader;
+    private final XmlGenerator xmlGenerator;
+    private final PrintStream out;
+    private final Map<Path, Observation> pending = new ConcurrentHashMap<>();
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+
+    private Path inbox;
+    private File outputDirectory;
+    private File mappingFile;
+    private long mappingModified = -1;
+    private LrnMapping mapping;
+    private ProcessedLedger ledger;
+    private Path ledgerPath;
+    private long settleNanos = TimeUnit.SECONDS.toNanos(3);
+    private ExecutorService workers;
+    private FileConverter converter;
+
+    public WatchCommand(ExcelReader excelReader, XmlGenerator xmlGenerator, PrintStream out) {
+        this.excelReader = excelReader;
+        this.xmlGenerator = xmlGenerator;
+        this.out = out;
+    }
+
+    public int run(String[] args) throws Exception {
+        String inboxArg = null;
+        String ledgerArg = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxItems = 0;
+        boolean pipelined = false;
+        File tariffDatabase = null;
+        File schemaFile = null;
+        File profilesFile = null;
+        File awbIndexDirectory = null;
+        AwbIndex.Policy awbPolicy = AwbIndex.Policy.BLOCK;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--awb-index":
+                    awbIndexDirectory = new File(BatchCommand.value(args, ++i));
+                    break;
+                case "--awb-policy":
+                    awbPolicy = BatchCommand.awbPolicy(BatchCommand.value(args, ++i));
+                    break;
+                case "--hs-db":
+                    tariffDatabase = new File(BatchCommand.value(args, ++i));
+                    break;
+                case "--lrn-map":
+                    mappingFile = new File(BatchCommand.value(args, ++i));
+                    break;
+                case "--profiles":
+                    profilesFile = new File(BatchCommand.value(args, ++i));
+                    break;
+                case "--xsd":
+                    schemaFile = new File(BatchCommand.value(args, ++i));
+                    break;
+                case "--out":
+                    outputDirectory = new File(BatchCommand.value(args, ++i));
+                    break;
+                case "--ledger":
+                    ledgerArg = BatchCommand.value(args, ++i);
+                    break;
+                case "--settle-seconds":
+                    settleNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(BatchCommand.value(args, ++i)));
+                    break;
+                case "--max-items":
+                    maxItems = Integer.parseInt(BatchCommand.value(args, ++i));
+                    break;
+                case "--pipelined":
+                    pipelined = true;
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(BatchCommand.value(args, ++i));
+                    break;
+                default:
+                    if (inboxArg != null) {
+                        throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+                    }
+                    inboxArg = args[i];
+                    break;
+            }
+        }
+        if (inboxArg == null || mappingFile == null) {
+            throw new IllegalArgumentException("Usage: --watch <inbox> --lrn-map <file> [--out <outbox>]"
+                    + " [--ledger <file>] [--settle-seconds <n>] [--threads <n>] [--max-items <n>] [--pipelined]"
+                    + " [--hs-db <file.accdb>] [--xsd <file>] [--profiles <file>] [--awb-index <directory>]"
+                    + " [--awb-policy block|warn]");
+        }
+        inbox = Paths.get(inboxArg).toAbsolutePath();
+        if (!Files.isDirectory(inbox)) {
+            throw new IllegalArgumentException("Inbox is not a directory: " + inbox);
+        }
+        if (outputDirectory != null && !outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Unable to create output directory: " + outputDirectory);
+        }
+        ledgerPath = (ledgerArg != null ? Paths.get(ledgerArg) : inbox.resolve(".t2uk-ledger.tsv")).toAbsolutePath();
+        ledger = ProcessedLedger.open(ledgerPath);
+        currentMapping();
+        ExcelReader reader = excelReader;
+        if (tariffDatabase != null || profilesFile != null) {
+            reader = new ExcelReader(tariffDatabase == null ? null : new CommodityCodes(tariffDatabase), null,
+                    profilesFile == null ? ColumnProfiles.defaults() : ColumnProfiles.load(profilesFile));
+        }
+        XmlGenerator generator = schemaFile != null ? xmlGenerator.withSchema(schemaFile) : xmlGenerator;
+        // held until the process exits; every recorded batch is forced to disk
+        AwbIndex awbIndex = awbIndexDirectory == null ? null : AwbIndex.open(awbIndexDirectory);
+        converter = new FileConverter(reader, generator, maxItems, pipelined, awbIndex, awbPolicy);
+
+        workers = Executors.newFixedThreadPool(Math.max(1, threads));
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        // on Ctrl+C or SIGTERM, wake the loop and give it time to finish the files in flight and close the ledger
+        Thread watcher = Thread.currentThread();
+        CountDownLatch stopped = new CountDownLatch(1);
+        Thread shutdownHook = new Thread(() -> {
+            watcher.interrupt();
+            try {
+                stopped.await(1, TimeUnit.MINUTES);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            inbox.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            log("Watching " + inbox);
+            scanInbox();
+            scheduler.scheduleWithFixedDelay(this::checkPending, 1, 1, TimeUnit.SECONDS);
+            scheduler.scheduleWithFixedDelay(Metrics::logPercentiles, PERCENTILE_MINUTES, PERCENTILE_MINUTES,
+                    TimeUnit.MINUTES);
+
+            while (true) {
+                WatchKey key;
+                try {
+                    key = watchService.take();
+                } catch (InterruptedException ex) {
+                    break;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        scanInbox();
+                        continue;
+                    }
+                    observe(inbox.resolve((Path) event.context()));
+                }
+                if (!key.reset()) {
+                    log("Inbox is no longer accessible: " + inbox);
+                    break;
+                }
+            }
+        } finally {
+            scheduler.shutdownNow();
+            workers.shutdown();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+            ledger.close();
+            Metrics.logPercentiles();
+            stopped.countDown();
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException ex) {
+                // already shutting down
+            }
+        }
+        return 0;
+    }
+
+    private void scanInbox() throws IOException {
+        try (Stream<Path> entries = Files.list(inbox)) {
+            entries.filter(Files::isRegularFile).forEach(this::observe);
+        }
+    }
+
+    private void observe(Path path) {
+        // the default ledger lives in the inbox and is a .tsv file itself
+        if (BatchCommand.isExcelFile(path) && !path.equals(ledgerPath)) {
+            pending.put(path, new Observation(-1, -1));
+        }
+    }
+
+    /**
+     * Hands files to the workers once they have stopped changing for the settle period and can be opened.
+     */
+    private void checkPending() {
+        long now = System.nanoTime();
+        for (Map.Entry<Path, Observation> entry : pending.entrySet()) {
+            Path path = entry.getKey();
+            Observation previous = entry.getValue();
+            try {
+                if (!Files.isRegularFile(path)) {
+                    pending.remove(path, previous);
+                    continue;
+                }
+                long size = Files.size(path);
+                long modified = Files.getLastModifiedTime(path).toMillis();
+                if (size != previous.size || modified != previous.modified) {
+                    pending.replace(path, previous, new Observation(size, modified));
+                    continue;
+                }
+                if (now - previous.since < settleNanos || !isReadable(path) || !inFlight.add(path)) {
+                    continue;
+                }
+                pending.remove(path, previous);
+                workers.submit(() -> process(path, size, modified));
+            } catch (IOException ex) {
+                // the file is still being copied or was removed; try again on the next tick
+            }
+        }
+    }
+
+    private void process(Path path, long size, long modified) {
+        try {
+            ProcessedLedger.Entry entry = ledger.get(path);
+            if (entry != null && entry.size == size && entry.modified == modified) {
+                return;
+            }
+            String hash = ProcessedLedger.sha256(path);
+            if (entry != null && entry.hash.equals(hash)) {
+                ledger.record(path, size, modified, hash, entry.output);
+                return;
+            }
+
+            File file = path.toFile();
+            File target = outputDirectory != null ? outputDirectory : file.getParentFile();
+            FileConverter.Result result = converter.convert(file, currentMapping().lrnFor(file), target);
+            if (result.isSuccess()) {
+                ledger.record(path, size, modified, hash, result.output.getAbsolutePath());
+                log(String.format("%s -> %s (%d items, read %d ms, write %d ms)", file.getName(),
+                        result.output.getName(), result.items, result.readNanos / 1_000_000,
+                        result.writeNanos / 1_000_000));
+                for (CodeIssue issue : result.codeIssues) {
+                    log("WARNING " + file.getName() + ": " + issue);
+                }
+                for (AwbIndex.Declaration declaration : result.redeclared) {
+                    log("WARNING " + file.getName() + ": " + declaration);
+                }
+            } else {
+                log(file.getName() + " FAILED: " + result.error);
+                for (SchemaIssue issue : result.schemaIssues) {
+                    log("ERROR " + file.getName() + ": " + issue);
+                }
+                for (AwbIndex.Declaration declaration : result.redeclared) {
+                    log("ERROR " + file.getName() + ": " + declaration);
+                }
+            }
+        } catch (Exception ex) {
+            log(path.getFileName() + " FAILED: " + ex.getMessage());
+        } finally {
+            inFlight.remove(path);
+        }
+    }
+
+    private synchronized LrnMapping currentMapping() throws IOException {
+        long modified = mappingFile.lastModified();
+        if (mapping == null || modified != mappingModified) {
+            mapping = LrnMapping.load(mappingFile);
+            mappingModified = modified;
+        }
+        return mapping;
+    }
+
+    private static boolean isReadable(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.isOpen();
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private synchronized void log(String message) {
+        out.println(LocalDateTime.now().format(LOG_STAMP) + " " + message);
+    }
+
+    private static final class Observation {
+        private final long size;
+        private final long modified;
+        private final long since = System.nanoTime();
+
+        private Observation(long size, long modified) {
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+}
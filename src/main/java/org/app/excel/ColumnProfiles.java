@@ -0,0 +1,259 @@
+package org.app.excel;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Column layouts a borderou sheet may use, each naming the header texts accepted for the description, HS code,
+ * AWB and weight columns. All profiles are compiled into one lookup from normalized header text to profile and
+ * column, so a candidate header row is matched against every profile in a single pass over its cells. The first
+ * profile, in definition order, that finds all four columns in a row wins; within a profile, aliases listed first
+ * take precedence.
+ * <p>
+ * Profiles are loaded from a UTF-8 file of {@code <profile>.<column> = <header>|<header>...} lines, where column is
+ * {@code description}, {@code code}, {@code awb} or {@code weight}; {@code headerScanRows = <n>} sets how many
+ * leading rows of a sheet are searched for the header. The built-in {@code standard} profile always comes first
+ * unless the file redefines it.
+ */
+public final class ColumnProfiles {
+    public enum Column {
+        DESCRIPTION,
+        CODE,
+        AWB,
+        WEIGHT
+    }
+
+    static final String STANDARD = "standard";
+    private static final int DEFAULT_HEADER_SCAN_ROWS = 20;
+    private static final int COLUMNS = Column.values().length;
+    private static final ColumnProfiles DEFAULTS = new ColumnProfiles(
+            Collections.singletonMap(STANDARD, standardAliases()), DEFAULT_HEADER_SCAN_ROWS);
+
+    private final String[] names;
+    private final Map<String, int[]> targets = new HashMap<>();
+    private final int headerScanRows;
+    private final long fingerprint;
+
+    private ColumnProfiles(Map<String, List<List<String>>> profiles, int headerScanRows) {
+        this.names = profiles.keySet().toArray(new String[0]);
+        this.headerScanRows = headerScanRows;
+        long hash = headerScanRows;
+        int profile = 0;
+        for (Map.Entry<String, List<List<String>>> entry : profiles.entrySet()) {
+            hash = hash * 31 + entry.getKey().hashCode();
+            for (Column column : Column.values()) {
+                List<String> aliases = entry.getValue().get(column.ordinal());
+                if (aliases.isEmpty()) {
+                    throw new IllegalArgumentException("Column profile " + entry.getKey() + " has no "
+                            + column.name().toLowerCase(Locale.ROOT) + " column.");
+                }
+                for (int rank = 0; rank < aliases.size(); rank++) {
+                    String alias = normalize(aliases.get(rank), new StringBuilder());
+                    hash = hash * 31 + alias.hashCode();
+                    int[] existing = targets.get(alias);
+                    int[] target = existing == null ? new int[2] : Arrays.copyOf(existing, existing.length + 2);
+                    target[target.length - 2] = profile * COLUMNS + column.ordinal();
+                    target[target.length - 1] = rank;
+                    targets.put(alias, target);
+                }
+            }
+            profile++;
+        }
+        this.fingerprint = hash;
+    }
+
+    /**
+     * The built-in profile only: {@code Descriere marfa}, {@code Incadrare}, {@code AWB} and {@code Greutate} or
+     * {@code Kgs}, searched for in the first 20 rows.
+     */
+    public static ColumnProfiles defaults() {
+        return DEFAULTS;
+    }
+
+    public static ColumnProfiles load(File file) throws IOException {
+        Map<String, List<List<String>>> profiles = new LinkedHashMap<>();
+        profiles.put(STANDARD, standardAliases());
+        int headerScanRows = DEFAULT_HEADER_SCAN_ROWS;
+        Map<String, List<List<String>>> loaded = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int equals = line.indexOf('=');
+                String key = equals < 0 ? "" : line.substring(0, equals).trim();
+                String value = equals < 0 ? "" : line.substring(equals + 1).trim();
+                if ("headerScanRows".equals(key)) {
+                    headerScanRows = Integer.parseInt(value);
+                    continue;
+                }
+                int dot = key.lastIndexOf('.');
+                Column column = dot <= 0 ? null : column(key.substring(dot + 1));
+                if (column == null || value.isEmpty()) {
+                    throw new IllegalArgumentException(file.getName() + ", line " + lineNumber
+                            + ": expected <profile>.<description|code|awb|weight> = <header>|<header>...");
+                }
+                List<String> aliases = loaded.computeIfAbsent(key.substring(0, dot).trim(), name -> emptyProfile())
+                        .get(column.ordinal());
+                for (String alias : value.split("\\|")) {
+                    if (!alias.trim().isEmpty()) {
+                        aliases.add(alias.trim());
+                    }
+                }
+            }
+        }
+        if (loaded.containsKey(STANDARD)) {
+            profiles.remove(STANDARD);
+        }
+        profiles.putAll(loaded);
+        if (headerScanRows < 1) {
+            throw new IllegalArgumentException("headerScanRows must be at least 1.");
+        }
+        return new ColumnProfiles(profiles, headerScanRows);
+    }
+
+    public List<String> getNames() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    public int getHeaderScanRows() {
+        return headerScanRows;
+    }
+
+    /**
+     * Changes whenever a profile, alias or the scan depth changes; part of the parse cache key.
+     */
+    long fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the header found in {@code row} by the first profile matching all columns, or {@code null}.
+     */
+    Header match(int rowIndex, SheetRow row) {
+        int[] columns = null;
+        int[] ranks = null;
+        StringBuilder buffer = new StringBuilder();
+        for (int cell = 0; cell < row.getCellCount(); cell++) {
+            int[] target = targets.get(normalize(row.getText(cell), buffer));
+            if (target == null) {
+                continue;
+            }
+            if (columns == null) {
+                columns = new int[names.length * COLUMNS];
+                ranks = new int[columns.length];
+                Arrays.fill(ranks, Integer.MAX_VALUE);
+            }
+            for (int i = 0; i < target.length; i += 2) {
+                int slot = target[i];
+                if (target[i + 1] < ranks[slot]) {
+                    ranks[slot] = target[i + 1];
+                    columns[slot] = cell;
+                }
+            }
+        }
+        if (columns == null) {
+            return null;
+        }
+        for (int profile = 0; profile < names.length; profile++) {
+            int base = profile * COLUMNS;
+            boolean complete = true;
+            for (int column = 0; column < COLUMNS && complete; column++) {
+                complete = ranks[base + column] != Integer.MAX_VALUE;
+            }
+            if (complete) {
+                return new Header(names[profile], rowIndex, columns[base + Column.DESCRIPTION.ordinal()],
+                        columns[base + Column.CODE.ordinal()], columns[base + Column.AWB.ordinal()],
+                        columns[base + Column.WEIGHT.ordinal()]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Trims, collapses runs of whitespace to one space and lowercases, without regular expressions.
+     */
+    private static String normalize(String value, StringBuilder buffer) {
+        if (value == null) {
+            return "";
+        }
+        buffer.setLength(0);
+        boolean space = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                space = buffer.length() > 0;
+            } else {
+                if (space) {
+                    buffer.append(' ');
+                    space = false;
+                }
+                buffer.append(Character.toLowerCase(c));
+            }
+        }
+        return buffer.toString();
+    }
+
+    private static Column column(String name) {
+        for (Column column : Column.values()) {
+            if (column.name().equalsIgnoreCase(name.trim())) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    private static List<List<String>> emptyProfile() {
+        List<List<String>> profile = new ArrayList<>();
+        for (int i = 0; i < COLUMNS; i++) {
+            profile.add(new ArrayList<>());
+        }
+        return profile;
+    }
+
+    private static List<List<String>> standardAliases() {
+        List<List<String>> profile = emptyProfile();
+        profile.get(Column.DESCRIPTION.ordinal()).add("descriere marfa");
+        profile.get(Column.CODE.ordinal()).add("incadrare");
+        profile.get(Column.AWB.ordinal()).add("awb");
+        profile.get(Column.WEIGHT.ordinal()).addAll(Arrays.asList("greutate", "kgs"));
+        return profile;
+    }
+
+    /**
+     * Where the columns of a matched profile are in a sheet.
+     */
+    static final class Header {
+        final String profile;
+        final int rowIndex;
+        final int descriptionIndex;
+        final int incadrareIndex;
+        final int awbIndex;
+        final int weightIndex;
+
+        private Header(String profile, int rowIndex, int descriptionIndex, int incadrareIndex, int awbIndex,
+                       int weightIndex) {
+            this.profile = profile;
+            this.rowIndex = rowIndex;
+            this.descriptionIndex = descriptionIndex;
+            this.incadrareIndex = incadrareIndex;
+            this.awbIndex = awbIndex;
+            this.weightIndex = weightIndex;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package org.app.excel;
+
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.ICSVParser;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads a CSV/TSV export in one streaming pass. The charset (BOM, else UTF-8 if the start of the file
+ * decodes cleanly, else Windows-1250) and the delimiter are detected from the first {@value #SAMPLE_SIZE}
+ * bytes; only the current record is held in memory. The file is its only sheet, named after the file.
+ */
+final class CsvSheetStreamer implements SheetSource {
+    private static final int SAMPLE_SIZE = 64 * 1024;
+    private static final int SAMPLE_LINES = 20;
+    private static final char[] DELIMITERS = {',', ';', '\t', '|'};
+    private static final Charset FALLBACK_CHARSET = Charset.forName("windows-1250");
+
+    private final File file;
+
+    CsvSheetStreamer(File file) {
+        this.file = file;
+    }
+
+    static boolean supports(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        return name.endsWith(".csv") || name.endsWith(".tsv");
+    }
+
+    @Override
+    public List<String> getSheetNames() {
+        return Collections.singletonList(file.getName());
+    }
+
+    @Override
+    public void stream(int index, SheetRowHandler handler) throws Exception {
+        if (index != 0) {
+            throw new IndexOutOfBoundsException("Sheet " + index + " of 1");
+        }
+        try (BufferedInputStream input = new BufferedInputStream(Files.newInputStream(file.toPath()), SAMPLE_SIZE)) {
+            input.mark(SAMPLE_SIZE);
+            byte[] sample = readSample(input);
+            input.reset();
+
+            int bomLength = bomLength(sample);
+            Charset charset = detectCharset(sample, bomLength);
+            skipFully(input, bomLength);
+            char delimiter = file.getName().toLowerCase(Locale.ROOT).endsWith(".tsv")
+                    ? '\t' : detectDelimiter(decodeSample(sample, bomLength, charset));
+
+            Reader reader = new InputStreamReader(input, charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE));
+            try (CSVReader csv = new CSVReaderBuilder(reader)
+                    // quotes are escaped only by doubling them; a backslash is data, e.g. in 1\2" PIPE or in a path
+                    .withCSVParser(new CSVParserBuilder().withSeparator(delimiter)
+                            .withEscapeChar(ICSVParser.NULL_CHARACTER).build())
+                    .build()) {
+                int rowIndex = 0;
+                String[] record;
+                while ((record = csv.readNext()) != null) {
+                    if (!handler.handleRow(rowIndex++, new CsvRow(record))) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        // every stream opens and closes the file itself
+    }
+
+    private static byte[] readSample(InputStream input) throws Exception {
+        byte[] sample = new byte[SAMPLE_SIZE];
+        int length = 0;
+        int read;
+        while (length < sample.length && (read = input.read(sample, length, sample.length - length)) != -1) {
+            length += read;
+        }
+        return Arrays.copyOf(sample, length);
+    }
+
+    private static void skipFully(InputStream input, int count) throws Exception {
+        for (int skipped = 0; skipped < count; ) {
+            skipped += (int) input.skip(count - skipped);
+        }
+    }
+
+    private static int bomLength(byte[] sample) {
+        if (sample.length >= 3 && (sample[0] & 0xFF) == 0xEF && (sample[1] & 0xFF) == 0xBB
+                && (sample[2] & 0xFF) == 0xBF) {
+            return 3;
+        }
+        if (sample.length >= 2 && ((sample[0] & 0xFF) == 0xFF && (sample[1] & 0xFF) == 0xFE
+                || (sample[0] & 0xFF) == 0xFE && (sample[1] & 0xFF) == 0xFF)) {
+            return 2;
+        }
+        return 0;
+    }
+
+    private static Charset detectCharset(byte[] sample, int bomLength) {
+        if (bomLength == 3) {
+            return StandardCharsets.UTF_8;
+        }
+        if (bomLength == 2) {
+            return (sample[0] & 0xFF) == 0xFF ? StandardCharsets.UTF_16LE : StandardCharsets.UTF_16BE;
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        // endOfInput is false so a multi-byte character cut off by the sample size is not an error
+        CoderResult result = decoder.decode(ByteBuffer.wrap(sample), CharBuffer.allocate(sample.length), false);
+        return result.isError() ? FALLBACK_CHARSET : StandardCharsets.UTF_8;
+    }
+
+    private static String decodeSample(byte[] sample, int bomLength, Charset charset) throws CharacterCodingException {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(ByteBuffer.wrap(sample, bomLength, sample.length - bomLength))
+                .toString();
+    }
+
+    /**
+     * Picks the delimiter whose per-line count (outside quotes) is the same on the most sample lines,
+     * so commas inside descriptions do not win over a consistent semicolon layout.
+     */
+    static char detectDelimiter(String sample) {
+        char best = DELIMITERS[0];
+        long bestScore = 0;
+        for (char delimiter : DELIMITERS) {
+            Map<Integer, Integer> lineCounts = new HashMap<>();
+            int count = 0;
+            int lines = 0;
+            boolean quoted = false;
+            for (int i = 0; i < sample.length() && lines < SAMPLE_LINES; i++) {
+                char c = sample.charAt(i);
+                if (c == '"') {
+                    quoted = !quoted;
+                } else if (!quoted && c == delimiter) {
+                    count++;
+                } else if (!quoted && c == '\n') {
+                    if (count > 0) {
+                        lineCounts.merge(count, 1, Integer::sum);
+                    }
+                    count = 0;
+                    lines++;
+                }
+            }
+            for (Map.Entry<Integer, Integer> entry : lineCounts.entrySet()) {
+                long score = (long) entry.getValue() * 1000 + entry.getKey();
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = delimiter;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static final class CsvRow implements SheetRow {
+        private final String[] values;
+
+        private CsvRow(String[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public int getCellCount() {
+            return values.length;
+        }
+
+        @Override
+        public String getText(int column) {
+            return column < values.length && values[column] != null ? values[column] : "";
+        }
+
+        @Override
+        public BigDecimal getDecimal(int column) {
+            return ExcelReader.parseDecimal(getText(column));
+        }
+    }
+}
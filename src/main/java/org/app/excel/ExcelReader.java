@@ -1,163 +1,587 @@
 package org.app.excel;
 
+import com.opencsv.CSVReader;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.app.metrics.Metrics;
+import org.app.metrics.Run;
+import org.app.metrics.Stage;
+import org.app.model.CodeIssue;
+import org.app.model.ColumnarExcelData;
 import org.app.model.ExcelData;
 import org.app.model.Item;
+import org.app.model.ProgressListener;
+import org.app.model.RowIssue;
+import org.app.model.ValidationReport;
+import org.app.tariff.CommodityCodeIndex;
+import org.app.tariff.CommodityCodes;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 public class ExcelReader {
+    private final CommodityCodes commodityCodes;
+    private final ParseCache parseCache;
+    private final ColumnProfiles profiles;
+
+    public ExcelReader() {
+        this(null, null);
+    }
+
+    /**
+     * @param commodityCodes tariff reference the HS code of every item is checked against, or {@code null}
+     */
+    public ExcelReader(CommodityCodes commodityCodes) {
+        this(commodityCodes, null);
+    }
+
+    /**
+     * @param parseCache cache of parsed files consulted by {@link #read(File)}, or {@code null}
+     */
+    public ExcelReader(CommodityCodes commodityCodes, ParseCache parseCache) {
+        this(commodityCodes, parseCache, ColumnProfiles.defaults());
+    }
+
+    /**
+     * @param profiles column layouts detected in each sheet
+     */
+    public ExcelReader(CommodityCodes commodityCodes, ParseCache parseCache, ColumnProfiles profiles) {
+        this.commodityCodes = commodityCodes;
+        this.parseCache = parseCache;
+        this.profiles = profiles;
+    }
+
+    /**
+     * Loads the tariff index and initializes the POI, XMLBeans, SAX and CSV classes a first read needs, so that
+     * can happen on a background thread before the user has chosen a file.
+     */
+    public void warmUp() throws Exception {
+        if (commodityCodes != null) {
+            commodityCodes.current();
+        }
+        // an empty styles table loads the XMLBeans type system of the spreadsheet schema
+        new StylesTable();
+        XMLHelper.newXMLReader();
+        new DataFormatter(Locale.ROOT);
+        ClassLoader loader = ExcelReader.class.getClassLoader();
+        for (Class<?> type : new Class<?>[]{OPCPackage.class, XSSFReader.class, ReadOnlySharedStringsTable.class,
+                WorkbookFactory.class, FileMagic.class, CSVReader.class}) {
+            Class.forName(type.getName(), true, loader);
+        }
+    }
+
     public ExcelData read(File excelFile) throws Exception {
-        try (InputStream inputStream = new FileInputStream(excelFile);
-             Workbook workbook = WorkbookFactory.create(inputStream)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            if (sheet == null) {
-                throw new IllegalArgumentException("Excel file has no sheets.");
-            }
-            DataFormatter formatter = new DataFormatter(Locale.ROOT);
+        return read(excelFile, ProgressListener.NONE);
+    }
 
-            Header header = findHeader(sheet, formatter);
-            if (header == null) {
-                throw new IllegalArgumentException("Unable to find header row with required columns.");
+    /**
+     * Reads every sheet that has a header row and merges their items in workbook order, reporting every item to
+     * {@code listener}; stops with a {@link java.util.concurrent.CancellationException} once the listener is
+     * cancelled. The sheets of an .xlsx file are read in parallel.
+     */
+    public ExcelData read(File excelFile, ProgressListener listener) throws Exception {
+        CommodityCodeIndex codeIndex = commodityCodes == null ? null : commodityCodes.current();
+        if (parseCache == null) {
+            return parse(excelFile, codeIndex, listener);
+        }
+
+        long size = excelFile.length();
+        long modified = excelFile.lastModified();
+        String hash;
+        long fingerprint = (codeIndex == null ? 0 : codeIndex.fingerprint()) * 31 + profiles.fingerprint();
+        long checkedDay = codeIndex == null ? 0 : LocalDate.now().toEpochDay();
+        try (Stage stage = Metrics.stage("parseCache")) {
+            hash = ParseCache.sha256(excelFile.toPath());
+            ColumnarExcelData cached = parseCache.get(hash, fingerprint, checkedDay);
+            if (cached != null) {
+                stage.items(cached.size());
+                listener.rowsRead(cached.size());
+                return cached;
+            }
+        }
+        ColumnarExcelData data = parse(excelFile, codeIndex, listener);
+        // a file rewritten while it was parsed would be stored under the hash of its old content
+        if (excelFile.length() == size && excelFile.lastModified() == modified) {
+            try {
+                parseCache.put(hash, fingerprint, checkedDay, data);
+            } catch (IOException ex) {
+                // the cache is an optimization; the parsed data is still good
             }
+        }
+        return data;
+    }
 
-            List<Item> items = new ArrayList<>();
-            BigDecimal total = BigDecimal.ZERO;
-            int lastRow = sheet.getLastRowNum();
-            for (int i = header.rowIndex + 1; i <= lastRow; i++) {
-                Row row = sheet.getRow(i);
-                if (row == null) {
-                    break;
-                }
-                String awb = cellString(row, header.awbIndex, formatter);
-                if (isBlank(awb)) {
-                    break;
-                }
-                String description = cellString(row, header.descriptionIndex, formatter);
-                String code = cellString(row, header.incadrareIndex, formatter);
-                BigDecimal kgs = cellDecimal(row, header.weightIndex, formatter);
+    public Map<String, ExcelData> readSheets(File excelFile) throws Exception {
+        return readSheets(excelFile, ProgressListener.NONE);
+    }
 
-                if (isBlank(description) || isBlank(code) || kgs == null) {
-                    throw new IllegalArgumentException("Randul " + (i + 1)
-                            + " lipseste valori pentru descriere bunuri, incadrare sau greutate.");
-                }
+    /**
+     * Like {@link #read(File, ProgressListener)}, but returns the data of each sheet that has a header row
+     * separately, by sheet name in workbook order. The parse cache is not used.
+     */
+    public Map<String, ExcelData> readSheets(File excelFile, ProgressListener listener) throws Exception {
+        CommodityCodeIndex codeIndex = commodityCodes == null ? null : commodityCodes.current();
+        return new LinkedHashMap<>(parseSheets(excelFile, codeIndex, listener));
+    }
 
-                items.add(new Item(description, code, awb, kgs));
-                total = total.add(kgs);
-            }
+    public ValidationReport validate(File excelFile) throws Exception {
+        return validate(excelFile, ProgressListener.NONE);
+    }
 
-            return new ExcelData(items, total);
+    /**
+     * Reads every sheet once to the end without stopping at the first bad row and collects every problem a
+     * conversion would run into or silently skip: missing descriptions, HS codes and weights, weights that are
+     * not numbers, AWBs seen before, rows without an AWB followed by more items, and unknown or expired HS codes
+     * when a tariff reference is configured. Fails only when no sheet has a header row. The parse cache is not
+     * used.
+     */
+    public ValidationReport validate(File excelFile, ProgressListener listener) throws Exception {
+        CommodityCodeIndex codeIndex = commodityCodes == null ? null : commodityCodes.current();
+        Validation validation = new Validation();
+        ItemRowHandler[] handlers = readSheets(excelFile, false, listener, (sheet, sheetListener) ->
+                new ItemRowHandler(profiles, sheet, null, codeIndex, validation::addCodeIssue, sheetListener,
+                        validation));
+        int items = 0;
+        for (ItemRowHandler handler : handlers) {
+            items += handler.items;
+        }
+        return new ValidationReport(validation.issues, items);
+    }
+
+    private ColumnarExcelData parse(File excelFile, CommodityCodeIndex codeIndex, ProgressListener listener)
+            throws Exception {
+        Map<String, ColumnarExcelData> sheets = parseSheets(excelFile, codeIndex, listener);
+        if (sheets.size() == 1) {
+            return sheets.values().iterator().next();
+        }
+        ColumnarExcelData.Builder merged = new ColumnarExcelData.Builder();
+        for (ColumnarExcelData sheet : sheets.values()) {
+            merged.addAll(sheet);
         }
+        return merged.build();
     }
 
-    private Header findHeader(Sheet sheet, DataFormatter formatter) {
-        int firstRow = sheet.getFirstRowNum();
-        int lastRow = Math.min(sheet.getLastRowNum(), firstRow + 20);
-        for (int i = firstRow; i <= lastRow; i++) {
-            Row row = sheet.getRow(i);
-            if (row == null) {
-                continue;
+    private Map<String, ColumnarExcelData> parseSheets(File excelFile, CommodityCodeIndex codeIndex,
+                                                       ProgressListener listener) throws Exception {
+        List<ColumnarExcelData.Builder> builders = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        ItemRowHandler[] handlers = readSheets(excelFile, true, listener, (sheet, sheetListener) -> {
+            ColumnarExcelData.Builder builder = new ColumnarExcelData.Builder();
+            builders.add(builder);
+            names.add(sheet);
+            return new ItemRowHandler(profiles, sheet, builder::add, codeIndex, builder::addCodeIssue, sheetListener);
+        });
+        Map<String, ColumnarExcelData> sheets = new LinkedHashMap<>();
+        for (int i = 0; i < handlers.length; i++) {
+            if (handlers[i].header != null) {
+                sheets.put(names.get(i), builders.get(i).build());
             }
-            Map<String, Integer> columns = new HashMap<>();
-            for (Cell cell : row) {
-                String name = normalizeHeader(formatter.formatCellValue(cell));
-                if (!name.isEmpty() && !columns.containsKey(name)) {
-                    columns.put(name, cell.getColumnIndex());
-                }
+        }
+        return sheets;
+    }
+
+    /**
+     * Reads every sheet row by row, in workbook order, and hands every item to {@code consumer} as soon as it is
+     * parsed. Sheets without a header row are skipped. .csv/.tsv exports (picked by extension) and .xlsx files are
+     * streamed; legacy .xls files go through the POI workbook model.
+     */
+    public void read(File excelFile, Consumer<Item> consumer) throws Exception {
+        read(excelFile, consumer, null);
+    }
+
+    /**
+     * Like {@link #read(File, Consumer)}, also handing every item whose HS code is unknown or expired today to
+     * {@code issueConsumer} when a tariff reference is configured.
+     */
+    public void read(File excelFile, Consumer<Item> consumer, Consumer<CodeIssue> issueConsumer) throws Exception {
+        CommodityCodeIndex codeIndex = commodityCodes == null || issueConsumer == null ? null
+                : commodityCodes.current();
+        readSheets(excelFile, false, ProgressListener.NONE, (sheet, sheetListener) ->
+                new ItemRowHandler(profiles, sheet, consumer, codeIndex, issueConsumer, sheetListener));
+    }
+
+    /**
+     * Streams every sheet to the handler {@code handlers} creates for it, in parallel when {@code parallel} and
+     * the format allows it, otherwise one after the other. Sheet names are passed to the handlers only when the
+     * file has several sheets. Fails when no sheet has a header row.
+     */
+    private ItemRowHandler[] readSheets(File excelFile, boolean parallel, ProgressListener listener,
+                                        BiFunction<String, ProgressListener, ItemRowHandler> handlers)
+            throws Exception {
+        AtomicInteger items = new AtomicInteger();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        ProgressListener sheetListener = new ProgressListener() {
+            @Override
+            public void rowsRead(int rows) {
+                listener.rowsRead(items.incrementAndGet());
             }
 
-            Integer descriptionIndex = columns.get("descriere marfa");
-            Integer incadrareIndex = columns.get("incadrare");
-            Integer awbIndex = columns.get("awb");
-            Integer weightIndex = columns.get("greutate");
-            if (weightIndex == null) {
-                weightIndex = columns.get("kgs");
+            @Override
+            public boolean isCancelled() {
+                return listener.isCancelled() || failure.get() != null;
             }
+        };
 
-            if (descriptionIndex != null && incadrareIndex != null && awbIndex != null && weightIndex != null) {
-                return new Header(i, descriptionIndex, incadrareIndex, awbIndex, weightIndex);
+        ItemRowHandler[] sheetHandlers = new ItemRowHandler[0];
+        try (Stage stage = Metrics.stage("read");
+             SheetSource source = open(excelFile)) {
+            List<String> names = source.getSheetNames();
+            sheetHandlers = new ItemRowHandler[names.size()];
+            for (int i = 0; i < sheetHandlers.length; i++) {
+                sheetHandlers[i] = handlers.apply(names.size() > 1 ? names.get(i) : null, sheetListener);
+            }
+            if (!parallel || !source.isConcurrent() || names.size() == 1) {
+                for (int i = 0; i < sheetHandlers.length; i++) {
+                    source.stream(i, sheetHandlers[i]);
+                }
+            } else {
+                streamParallel(source, sheetHandlers, failure);
+            }
+            int rows = 0;
+            for (ItemRowHandler handler : sheetHandlers) {
+                rows += handler.rows;
+            }
+            stage.rows(rows).items(items.get());
+        } finally {
+            long headerNanos = 0;
+            int headerRows = 0;
+            for (ItemRowHandler handler : sheetHandlers) {
+                if (handler != null) {
+                    headerNanos += handler.headerNanos;
+                    headerRows += handler.headerRows;
+                }
+            }
+            Metrics.record("findHeader", headerNanos, headerRows);
+        }
+        for (ItemRowHandler handler : sheetHandlers) {
+            if (handler.header != null) {
+                return sheetHandlers;
             }
         }
-        return null;
+        throw new IllegalArgumentException("Unable to find header row with required columns.");
     }
 
-    private static String normalizeHeader(String value) {
-        if (value == null) {
-            return "";
+    private static void streamParallel(SheetSource source, ItemRowHandler[] handlers,
+                                       AtomicReference<Exception> failure) throws Exception {
+        Run run = Metrics.currentRun();
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(handlers.length, Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < handlers.length; i++) {
+                int sheet = i;
+                futures.add(pool.submit(() -> {
+                    Metrics.attach(run);
+                    try {
+                        source.stream(sheet, handlers[sheet]);
+                    } catch (Exception ex) {
+                        // the first failure stops the other sheets, which then fail as cancelled
+                        failure.compareAndSet(null, ex);
+                    } finally {
+                        Metrics.attach(null);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        if (failure.get() != null) {
+            throw failure.get();
         }
-        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
     }
 
-    private static String cellString(Row row, int index, DataFormatter formatter) {
-        Cell cell = row.getCell(index);
-        if (cell == null) {
-            return "";
+    private static SheetSource open(File excelFile) throws Exception {
+        if (CsvSheetStreamer.supports(excelFile)) {
+            return new CsvSheetStreamer(excelFile);
         }
-        return formatter.formatCellValue(cell).trim();
+        if (FileMagic.valueOf(excelFile) == FileMagic.OOXML) {
+            return new XlsxSheetStreamer(excelFile);
+        }
+        return new WorkbookSheets(excelFile);
     }
 
-    private static BigDecimal cellDecimal(Row row, int index, DataFormatter formatter) {
-        Cell cell = row.getCell(index);
-        if (cell == null) {
+    static BigDecimal parseDecimal(String value) {
+        String text = value.trim();
+        if (text.isEmpty()) {
             return null;
         }
-        switch (cell.getCellType()) {
-            case NUMERIC:
-                return BigDecimal.valueOf(cell.getNumericCellValue());
-            case STRING:
-                String text = formatter.formatCellValue(cell).trim();
-                if (text.isEmpty()) {
-                    return null;
+        text = text.replace(" ", "").replace(",", ".");
+        return new BigDecimal(text);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    /**
+     * Problems collected by a validation pass over the sheets, which are read one after the other.
+     */
+    private static final class Validation {
+        private final List<RowIssue> issues = new ArrayList<>();
+        private final Map<String, Map.Entry<String, Integer>> firstRows = new HashMap<>();
+
+        private void add(RowIssue issue) {
+            issues.add(issue);
+        }
+
+        private void addCodeIssue(CodeIssue issue) {
+            issues.add(RowIssue.of(issue));
+        }
+
+        private void checkAwb(String sheet, int rowNumber, String awb) {
+            Map.Entry<String, Integer> first = firstRows.putIfAbsent(awb,
+                    new AbstractMap.SimpleImmutableEntry<>(sheet, rowNumber));
+            if (first != null) {
+                issues.add(new RowIssue(sheet, rowNumber, RowIssue.Problem.DUPLICATE_AWB, awb, first.getKey(),
+                        first.getValue()));
+            }
+        }
+    }
+
+    private static final class ItemRowHandler implements SheetRowHandler {
+        private final ColumnProfiles profiles;
+        private final String sheet;
+        private final Consumer<Item> consumer;
+        private final CommodityCodeIndex codeIndex;
+        private final Consumer<CodeIssue> issueConsumer;
+        private final ProgressListener listener;
+        private final Validation validation;
+        private final long today = LocalDate.now().toEpochDay();
+        private int firstRow = -1;
+        private int firstBlankRow = -1;
+        private int rows;
+        private int items;
+        private int headerRows;
+        private long headerNanos;
+        private ColumnProfiles.Header header;
+
+        private ItemRowHandler(ColumnProfiles profiles, String sheet, Consumer<Item> consumer,
+                               CommodityCodeIndex codeIndex, Consumer<CodeIssue> issueConsumer,
+                               ProgressListener listener) {
+            this(profiles, sheet, consumer, codeIndex, issueConsumer, listener, null);
+        }
+
+        /**
+         * @param validation where to collect problems instead of failing on the first one; items are then not
+         *                   handed to {@code consumer}, and rows after the first one without an AWB are read too
+         */
+        private ItemRowHandler(ColumnProfiles profiles, String sheet, Consumer<Item> consumer,
+                               CommodityCodeIndex codeIndex, Consumer<CodeIssue> issueConsumer,
+                               ProgressListener listener, Validation validation) {
+            this.profiles = profiles;
+            this.sheet = sheet;
+            this.consumer = consumer;
+            this.codeIndex = codeIndex;
+            this.issueConsumer = issueConsumer;
+            this.listener = listener;
+            this.validation = validation;
+        }
+
+        @Override
+        public boolean handleRow(int rowIndex, SheetRow row) {
+            listener.checkCancelled();
+            rows++;
+            if (firstRow < 0) {
+                firstRow = rowIndex;
+            }
+            if (header == null) {
+                if (rowIndex > firstRow + profiles.getHeaderScanRows()) {
+                    return false;
                 }
-                text = text.replace(" ", "").replace(",", ".");
-                return new BigDecimal(text);
-            case FORMULA:
-                String formulaValue = formatter.formatCellValue(cell).trim();
-                if (formulaValue.isEmpty()) {
-                    return null;
+                if (row != null) {
+                    long start = System.nanoTime();
+                    header = profiles.match(rowIndex, row);
+                    headerNanos += System.nanoTime() - start;
+                    headerRows++;
                 }
-                formulaValue = formulaValue.replace(" ", "").replace(",", ".");
-                return new BigDecimal(formulaValue);
-            default:
-                String value = formatter.formatCellValue(cell).trim();
-                if (value.isEmpty()) {
-                    return null;
+                return true;
+            }
+            String awb = row == null ? "" : row.getText(header.awbIndex).trim();
+            if (isBlank(awb)) {
+                if (validation == null) {
+                    return false;
+                }
+                if (firstBlankRow < 0) {
+                    firstBlankRow = rowIndex;
+                }
+                return true;
+            }
+            if (firstBlankRow >= 0) {
+                validation.add(new RowIssue(sheet, firstBlankRow + 1, RowIssue.Problem.GAP, null, sheet,
+                        rowIndex + 1));
+                firstBlankRow = -1;
+            }
+            String description = row.getText(header.descriptionIndex).trim();
+            String code = row.getText(header.incadrareIndex).trim();
+            BigDecimal kgs = null;
+            RowIssue invalidWeight = null;
+            try {
+                kgs = row.getDecimal(header.weightIndex);
+            } catch (NumberFormatException ex) {
+                invalidWeight = new RowIssue(sheet, rowIndex + 1, RowIssue.Problem.INVALID_WEIGHT,
+                        row.getText(header.weightIndex).trim());
+                if (validation == null) {
+                    throw new IllegalArgumentException(invalidWeight + ".", ex);
                 }
-                value = value.replace(" ", "").replace(",", ".");
-                return new BigDecimal(value);
+            }
+
+            if (validation != null) {
+                validate(rowIndex + 1, awb, description, code, kgs, invalidWeight);
+                listener.rowsRead(++items);
+                return true;
+            }
+            if (isBlank(description) || isBlank(code) || kgs == null) {
+                throw new IllegalArgumentException((sheet != null ? "Sheet " + sheet + ", row " : "Row ")
+                        + (rowIndex + 1) + " is missing the goods description, commodity code or weight.");
+            }
+
+            consumer.accept(new Item(description, code, awb, kgs));
+            checkCode(rowIndex + 1, code);
+            listener.rowsRead(++items);
+            return true;
+        }
+
+        private void validate(int rowNumber, String awb, String description, String code, BigDecimal kgs,
+                              RowIssue invalidWeight) {
+            if (isBlank(description)) {
+                validation.add(new RowIssue(sheet, rowNumber, RowIssue.Problem.MISSING_DESCRIPTION, null));
+            }
+            if (isBlank(code)) {
+                validation.add(new RowIssue(sheet, rowNumber, RowIssue.Problem.MISSING_CODE, null));
+            } else {
+                checkCode(rowNumber, code);
+            }
+            if (invalidWeight != null) {
+                validation.add(invalidWeight);
+            } else if (kgs == null) {
+                validation.add(new RowIssue(sheet, rowNumber, RowIssue.Problem.MISSING_WEIGHT, null));
+            }
+            validation.checkAwb(sheet, rowNumber, awb);
+        }
+
+        private void checkCode(int rowNumber, String code) {
+            if (codeIndex != null) {
+                CodeIssue.Problem problem = codeIndex.check(code, today);
+                if (problem != null) {
+                    issueConsumer.accept(new CodeIssue(sheet, rowNumber, code, problem));
+                }
+            }
         }
     }
 
-    private static boolean isBlank(String value) {
-        return value == null || value.trim().isEmpty();
+    /**
+     * Sheets of a legacy .xls file, read through the POI workbook model one at a time.
+     */
+    private static final class WorkbookSheets implements SheetSource {
+        private final Workbook workbook;
+        private final List<String> names = new ArrayList<>();
+
+        private WorkbookSheets(File excelFile) throws Exception {
+            try (InputStream inputStream = new FileInputStream(excelFile)) {
+                workbook = WorkbookFactory.create(inputStream);
+            }
+            for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+                names.add(workbook.getSheetName(i));
+            }
+            if (names.isEmpty()) {
+                workbook.close();
+                throw new IllegalArgumentException("Excel file has no sheets.");
+            }
+        }
+
+        @Override
+        public List<String> getSheetNames() {
+            return names;
+        }
+
+        @Override
+        public void stream(int index, SheetRowHandler handler) throws Exception {
+            Sheet sheet = workbook.getSheetAt(index);
+            DataFormatter formatter = new DataFormatter(Locale.ROOT);
+
+            int lastRow = sheet.getLastRowNum();
+            for (int i = sheet.getFirstRowNum(); i <= lastRow; i++) {
+                Row row = sheet.getRow(i);
+                if (!handler.handleRow(i, row == null ? null : new WorkbookRow(row, formatter))) {
+                    break;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            workbook.close();
+        }
     }
 
-    private static final class Header {
-        private final int rowIndex;
-        private final int descriptionIndex;
-        private final int incadrareIndex;
-        private final int awbIndex;
-        private final int weightIndex;
+    private static final class WorkbookRow implements SheetRow {
+        private final Row row;
+        private final DataFormatter formatter;
+
+        private WorkbookRow(Row row, DataFormatter formatter) {
+            this.row = row;
+            this.formatter = formatter;
+        }
+
+        @Override
+        public int getCellCount() {
+            return Math.max(row.getLastCellNum(), 0);
+        }
+
+        @Override
+        public String getText(int column) {
+            Cell cell = row.getCell(column);
+            if (cell == null) {
+                return "";
+            }
+            return formatter.formatCellValue(cell);
+        }
 
-        private Header(int rowIndex, int descriptionIndex, int incadrareIndex, int awbIndex, int weightIndex) {
-            this.rowIndex = rowIndex;
-            this.descriptionIndex = descriptionIndex;
-            this.incadrareIndex = incadrareIndex;
-            this.awbIndex = awbIndex;
-            this.weightIndex = weightIndex;
+        @Override
+        public BigDecimal getDecimal(int column) {
+            Cell cell = row.getCell(column);
+            if (cell == null) {
+                return null;
+            }
+            if (cell.getCellType() == CellType.NUMERIC) {
+                return BigDecimal.valueOf(cell.getNumericCellValue());
+            }
+            return parseDecimal(formatter.formatCellValue(cell));
         }
     }
 }
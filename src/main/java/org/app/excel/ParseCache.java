@@ -0,0 +1,192 @@
+package org.app.excel;
+
+import org.app.model.ColumnarExcelData;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parsed borderouri keyed by the SHA-256 of the source file, so regenerating an unchanged file skips parsing.
+ * Entries are kept in memory and as compact binary files in a directory, each bounded in bytes with
+ * least-recently-used eviction (on disk by file modification time, refreshed on every hit). Because the key
+ * is the content hash, an edited file is simply a miss. An entry also records the tariff index fingerprint and
+ * the day its HS codes were checked, and is ignored when either differs.
+ */
+public class ParseCache {
+    private static final int MAGIC = 0x54325043;
+    // also bumped whenever a file parses differently, e.g. 3 since backslashes in CSV/TSV cells are data
+    private static final int VERSION = 3;
+    private static final String SUFFIX = ".bin";
+    private static final long DEFAULT_DISK_BYTES = 256L * 1024 * 1024;
+    private static final long DEFAULT_MEMORY_BYTES = 64L * 1024 * 1024;
+
+    private final File directory;
+    private final long maxDiskBytes;
+    private final long maxMemoryBytes;
+    private final Map<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+
+    public ParseCache(File directory, long maxDiskBytes, long maxMemoryBytes) {
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.maxMemoryBytes = maxMemoryBytes;
+    }
+
+    /**
+     * Opens the per-user cache in {@code ~/.t2uk/parse-cache} with the default limits (256 MiB on disk,
+     * 64 MiB in memory).
+     */
+    public static ParseCache openDefault() {
+        return new ParseCache(new File(new File(System.getProperty("user.home"), ".t2uk"), "parse-cache"),
+                DEFAULT_DISK_BYTES, DEFAULT_MEMORY_BYTES);
+    }
+
+    ColumnarExcelData get(String hash, long tariffFingerprint, long checkedDay) {
+        synchronized (this) {
+            Entry entry = memory.get(hash);
+            if (entry != null && entry.matches(tariffFingerprint, checkedDay)) {
+                return entry.data;
+            }
+        }
+        File file = new File(directory, hash + SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || in.readLong() != tariffFingerprint || in.readLong() != checkedDay) {
+                return null;
+            }
+            ColumnarExcelData data = ColumnarExcelData.readFrom(in);
+            // refreshes the entry's place in the on-disk LRU order; best effort
+            file.setLastModified(System.currentTimeMillis());
+            remember(hash, new Entry(data, tariffFingerprint, checkedDay, file.length()));
+            return data;
+        } catch (IOException | RuntimeException ex) {
+            // unreadable or corrupt entry; parse again and overwrite it
+            return null;
+        }
+    }
+
+    void put(String hash, long tariffFingerprint, long checkedDay, ColumnarExcelData data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(tariffFingerprint);
+            out.writeLong(checkedDay);
+            data.writeTo(out);
+        }
+        remember(hash, new Entry(data, tariffFingerprint, checkedDay, bytes.size()));
+        if (bytes.size() > maxDiskBytes) {
+            return;
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create cache directory: " + directory);
+        }
+        Path temp = Files.createTempFile(directory.toPath(), hash, ".tmp");
+        try {
+            try (BufferedOutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                bytes.writeTo(out);
+            }
+            Files.move(temp, new File(directory, hash + SUFFIX).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        evictFromDisk();
+    }
+
+    private synchronized void remember(String hash, Entry entry) {
+        Entry previous = memory.put(hash, entry);
+        if (previous != null) {
+            memoryBytes -= previous.bytes;
+        }
+        memoryBytes += entry.bytes;
+        Iterator<Entry> eldest = memory.values().iterator();
+        while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+            memoryBytes -= eldest.next().bytes;
+            eldest.remove();
+        }
+    }
+
+    private synchronized void evictFromDisk() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= maxDiskBytes) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length && total > maxDiskBytes; i++) {
+            long length = files[i].length();
+            if (files[i].delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    /**
+     * Returns the lowercase hex SHA-256 of the file content.
+     */
+    public static String sha256(Path path) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static final class Entry {
+        private final ColumnarExcelData data;
+        private final long tariffFingerprint;
+        private final long checkedDay;
+        private final long bytes;
+
+        private Entry(ColumnarExcelData data, long tariffFingerprint, long checkedDay, long bytes) {
+            this.data = data;
+            this.tariffFingerprint = tariffFingerprint;
+            this.checkedDay = checkedDay;
+            this.bytes = bytes;
+        }
+
+        private boolean matches(long fingerprint, long day) {
+            return tariffFingerprint == fingerprint && checkedDay == day;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.app.excel;
+
+import java.math.BigDecimal;
+
+interface SheetRow {
+    int getCellCount();
+
+    String getText(int column);
+
+    BigDecimal getDecimal(int column);
+}
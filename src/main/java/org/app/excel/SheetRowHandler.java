@@ -0,0 +1,9 @@
+package org.app.excel;
+
+interface SheetRowHandler {
+    /**
+     * Receives rows in sheet order; {@code row} is null for a missing row.
+     * Returning false stops reading the sheet.
+     */
+    boolean handleRow(int rowIndex, SheetRow row) throws Exception;
+}
@@ -0,0 +1,24 @@
+package org.app.excel;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The sheets of one input file, each streamed row by row to a {@link SheetRowHandler}.
+ */
+interface SheetSource extends AutoCloseable {
+    List<String> getSheetNames();
+
+    /**
+     * Streams the sheet at {@code index} in {@link #getSheetNames()}. Different sheets may be streamed from
+     * different threads at the same time when {@link #isConcurrent()}.
+     */
+    void stream(int index, SheetRowHandler handler) throws Exception;
+
+    default boolean isConcurrent() {
+        return false;
+    }
+
+    @Override
+    void close() throws IOException;
+}
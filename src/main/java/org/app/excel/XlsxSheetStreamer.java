@@ -0,0 +1,311 @@
+package org.app.excel;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.File;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads the sheets of an .xlsx file with the SAX event API, so only the current row of each sheet
+ * (plus the shared strings table) is held in memory. The shared strings and styles are loaded once when the file is
+ * opened and only read afterwards, so several sheets can be streamed at the same time.
+ */
+final class XlsxSheetStreamer implements SheetSource {
+    private final OPCPackage pkg;
+    private final ReadOnlySharedStringsTable strings;
+    private final StylesTable styles;
+    private final List<String> sheetNames = new ArrayList<>();
+    private final List<PackagePart> sheetParts = new ArrayList<>();
+
+    XlsxSheetStreamer(File file) throws Exception {
+        pkg = OPCPackage.open(file, PackageAccess.READ);
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            strings = new ReadOnlySharedStringsTable(pkg, false);
+            styles = reader.getStylesTable();
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                sheets.next().close();
+                sheetNames.add(sheets.getSheetName());
+                sheetParts.add(sheets.getSheetPart());
+            }
+        } catch (Exception ex) {
+            pkg.revert();
+            throw ex;
+        }
+        if (sheetParts.isEmpty()) {
+            pkg.revert();
+            throw new IllegalArgumentException("Excel file has no sheets.");
+        }
+    }
+
+    @Override
+    public List<String> getSheetNames() {
+        return Collections.unmodifiableList(sheetNames);
+    }
+
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
+
+    @Override
+    public void stream(int index, SheetRowHandler handler) throws Exception {
+        try (InputStream sheet = sheetParts.get(index).getInputStream()) {
+            SheetHandler sheetHandler = new SheetHandler(handler, strings, styles);
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(sheetHandler);
+            try {
+                parser.parse(new InputSource(sheet));
+            } catch (StopReading stop) {
+                if (stop.failure != null) {
+                    throw stop.failure;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        pkg.revert();
+    }
+
+    private static int columnIndex(String reference) {
+        int column = 0;
+        for (int i = 0; i < reference.length(); i++) {
+            char c = reference.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    private static final class StopReading extends SAXException {
+        private static final long serialVersionUID = 1L;
+
+        private final Exception failure;
+
+        private StopReading(Exception failure) {
+            this.failure = failure;
+        }
+    }
+
+    private static final class SheetHandler extends DefaultHandler {
+        private final SheetRowHandler handler;
+        private final ReadOnlySharedStringsTable strings;
+        private final StylesTable styles;
+        private final StreamedRow row;
+        private final StringBuilder text = new StringBuilder();
+
+        private int rowIndex = -1;
+        private int column;
+        private String cellType;
+        private String cellStyle;
+        private boolean hasValue;
+        private boolean collecting;
+
+        private SheetHandler(SheetRowHandler handler, ReadOnlySharedStringsTable strings, StylesTable styles) {
+            this.handler = handler;
+            this.strings = strings;
+            this.styles = styles;
+            this.row = new StreamedRow(new DataFormatter(Locale.ROOT));
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes)
+                throws SAXException {
+            switch (localName) {
+                case "row":
+                    String r = attributes.getValue("r");
+                    int index = r == null ? rowIndex + 1 : Integer.parseInt(r) - 1;
+                    if (rowIndex >= 0) {
+                        for (int missing = rowIndex + 1; missing < index; missing++) {
+                            deliver(missing, null);
+                        }
+                    }
+                    rowIndex = index;
+                    row.clear();
+                    column = -1;
+                    break;
+                case "c":
+                    String reference = attributes.getValue("r");
+                    column = reference == null ? column + 1 : columnIndex(reference);
+                    cellType = attributes.getValue("t");
+                    cellStyle = attributes.getValue("s");
+                    hasValue = false;
+                    text.setLength(0);
+                    break;
+                case "v":
+                case "t":
+                    collecting = true;
+                    hasValue = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collecting) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "v":
+                case "t":
+                    collecting = false;
+                    break;
+                case "c":
+                    if (hasValue) {
+                        storeCell();
+                    }
+                    break;
+                case "row":
+                    deliver(rowIndex, row);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void storeCell() {
+            String value = text.toString();
+            if (cellType == null || "n".equals(cellType)) {
+                row.setNumber(column, value, numberStyle());
+            } else if ("s".equals(cellType)) {
+                row.setText(column, strings.getItemAt(Integer.parseInt(value.trim())).getString());
+            } else if ("b".equals(cellType)) {
+                row.setText(column, "0".equals(value) ? "FALSE" : "TRUE");
+            } else {
+                row.setText(column, value);
+            }
+        }
+
+        private XSSFCellStyle numberStyle() {
+            if (styles == null) {
+                return null;
+            }
+            if (cellStyle != null) {
+                return styles.getStyleAt(Integer.parseInt(cellStyle));
+            }
+            return styles.getNumCellStyles() > 0 ? styles.getStyleAt(0) : null;
+        }
+
+        private void deliver(int index, SheetRow sheetRow) throws StopReading {
+            boolean more;
+            try {
+                more = handler.handleRow(index, sheetRow);
+            } catch (Exception ex) {
+                throw new StopReading(ex);
+            }
+            if (!more) {
+                throw new StopReading(null);
+            }
+        }
+    }
+
+    private static final class StreamedRow implements SheetRow {
+        private final DataFormatter formatter;
+        private String[] values = new String[16];
+        private XSSFCellStyle[] numberStyles = new XSSFCellStyle[16];
+        private boolean[] numeric = new boolean[16];
+        private int cellCount;
+
+        private StreamedRow(DataFormatter formatter) {
+            this.formatter = formatter;
+        }
+
+        private void clear() {
+            Arrays.fill(values, 0, cellCount, null);
+            Arrays.fill(numberStyles, 0, cellCount, null);
+            Arrays.fill(numeric, 0, cellCount, false);
+            cellCount = 0;
+        }
+
+        private void setText(int column, String value) {
+            ensureCapacity(column);
+            values[column] = value;
+            numeric[column] = false;
+        }
+
+        private void setNumber(int column, String value, XSSFCellStyle style) {
+            ensureCapacity(column);
+            values[column] = value;
+            numberStyles[column] = style;
+            numeric[column] = true;
+        }
+
+        private void ensureCapacity(int column) {
+            if (column >= values.length) {
+                int size = Math.max(values.length * 2, column + 1);
+                values = Arrays.copyOf(values, size);
+                numberStyles = Arrays.copyOf(numberStyles, size);
+                numeric = Arrays.copyOf(numeric, size);
+            }
+            cellCount = Math.max(cellCount, column + 1);
+        }
+
+        @Override
+        public int getCellCount() {
+            return cellCount;
+        }
+
+        @Override
+        public String getText(int column) {
+            if (column >= cellCount || values[column] == null) {
+                return "";
+            }
+            if (!numeric[column]) {
+                return values[column];
+            }
+            double value = Double.parseDouble(values[column]);
+            XSSFCellStyle style = numberStyles[column];
+            if (style == null) {
+                return formatter.formatRawCellContents(value, 0, "General");
+            }
+            int formatIndex = style.getDataFormat();
+            String formatString = style.getDataFormatString();
+            if (formatString == null) {
+                formatString = BuiltinFormats.getBuiltinFormat(formatIndex);
+            }
+            return formatter.formatRawCellContents(value, formatIndex, formatString);
+        }
+
+        @Override
+        public BigDecimal getDecimal(int column) {
+            if (column >= cellCount || values[column] == null) {
+                return null;
+            }
+            if (numeric[column]) {
+                return BigDecimal.valueOf(Double.parseDouble(values[column]));
+            }
+            return ExcelReader.parseDecimal(values[column]);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.app.metrics;
+
+/**
+ * Log-linear histogram of durations in microseconds: exact below 16 µs, then eight buckets per power of two
+ * (within 12.5%). Memory stays fixed however many values are recorded.
+ */
+final class Histogram {
+    private static final int SUB_BUCKETS = 8;
+    private static final int LINEAR = 16;
+
+    private final long[] counts = new long[LINEAR + (64 - 4) * SUB_BUCKETS];
+    private long count;
+    private long max;
+
+    synchronized void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts[index(micros)]++;
+        count++;
+        max = Math.max(max, micros);
+    }
+
+    synchronized long count() {
+        return count;
+    }
+
+    synchronized long maxMicros() {
+        return max;
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the {@code percentile}th value, capped at the maximum.
+     */
+    synchronized long percentileMicros(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int index(long micros) {
+        if (micros < LINEAR) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int exponent = (index - LINEAR) / SUB_BUCKETS + 4;
+        int sub = (index - LINEAR) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 3)) - 1;
+    }
+}
@@ -0,0 +1,141 @@
+package org.app.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.StringMapMessage;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide stage metrics. Every closed {@link Stage} emits a JFR event, is added to the {@link Run} current
+ * on its thread and to a cumulative per-stage duration histogram, which {@link #logPercentiles()} reports.
+ * <p>
+ * The heap delta of a stage is the heap pools' peak usage during the stage minus the usage at its start. Peaks
+ * are only reset when no other stage is open, so with nested or concurrent stages it is an upper bound.
+ */
+public final class Metrics {
+    static final Logger LOG = LogManager.getLogger("org.app.metrics");
+
+    private static final ThreadLocal<Run> CURRENT = new ThreadLocal<>();
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final AtomicInteger OPEN_STAGES = new AtomicInteger();
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+    private static final List<MemoryPoolMXBean> HEAP_POOLS = heapPools();
+
+    private Metrics() {
+    }
+
+    /**
+     * Starts a run for {@code source} on the current thread; close it to log its summary line.
+     */
+    public static Run run(String source) {
+        Run run = new Run(source, CURRENT.get());
+        CURRENT.set(run);
+        return run;
+    }
+
+    /**
+     * Returns the run current on this thread, or {@code null}.
+     */
+    public static Run currentRun() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes {@code run} current on this thread, e.g. in a worker generating part of it; pass {@code null} to
+     * detach again.
+     */
+    public static void attach(Run run) {
+        if (run == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(run);
+        }
+    }
+
+    public static Stage stage(String name) {
+        return new Stage(name, CURRENT.get());
+    }
+
+    /**
+     * Records a stage that was timed by the caller, e.g. one spread over several calls.
+     */
+    public static void record(String name, long nanos, long rows) {
+        Run run = CURRENT.get();
+        record(name, nanos, rows, 0, 0, 0, run);
+        StageEvents.commit(StageEvents.begin(), name, run == null ? null : run.getSource(), rows, 0, 0, 0);
+    }
+
+    /**
+     * Logs count, p50, p90, p99 and maximum duration of every stage recorded since startup.
+     */
+    public static void logPercentiles() {
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(HISTOGRAMS).entrySet()) {
+            Histogram histogram = entry.getValue();
+            LOG.info(new StringMapMessage()
+                    .with("stage", entry.getKey())
+                    .with("count", histogram.count())
+                    .with("p50_ms", micros(histogram.percentileMicros(50)))
+                    .with("p90_ms", micros(histogram.percentileMicros(90)))
+                    .with("p99_ms", micros(histogram.percentileMicros(99)))
+                    .with("max_ms", micros(histogram.maxMicros())));
+        }
+    }
+
+    static void record(String name, long nanos, long rows, long items, long bytes, long heapDelta, Run run) {
+        HISTOGRAMS.computeIfAbsent(name, key -> new Histogram()).record(nanos);
+        if (run != null) {
+            run.add(name, nanos, rows, items, bytes, heapDelta);
+        }
+    }
+
+    static void endRun(Run run, Run previous) {
+        if (CURRENT.get() == run) {
+            attach(previous);
+        }
+    }
+
+    static long enterStage() {
+        if (OPEN_STAGES.getAndIncrement() == 0) {
+            for (MemoryPoolMXBean pool : HEAP_POOLS) {
+                pool.resetPeakUsage();
+            }
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    static long exitStage(long startHeap) {
+        OPEN_STAGES.decrementAndGet();
+        long peak = 0;
+        for (MemoryPoolMXBean pool : HEAP_POOLS) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        if (HEAP_POOLS.isEmpty()) {
+            peak = MEMORY.getHeapMemoryUsage().getUsed();
+        }
+        return Math.max(0, peak - startHeap);
+    }
+
+    private static String micros(long micros) {
+        return Run.millis(micros * 1000);
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pools.add(pool);
+            }
+        }
+        return pools;
+    }
+}
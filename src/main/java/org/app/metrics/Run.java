@@ -0,0 +1,80 @@
+package org.app.metrics;
+
+import org.apache.logging.log4j.message.StringMapMessage;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One conversion of one source file. Stages recorded while the run is current are summed per stage name and
+ * logged as a single structured line when the run is closed.
+ */
+public final class Run implements AutoCloseable {
+    private final String source;
+    private final long startNanos = System.nanoTime();
+    private final Map<String, long[]> stages = new LinkedHashMap<>();
+    private final Run previous;
+    private long peakHeapDelta;
+    private String error;
+    private boolean closed;
+
+    Run(String source, Run previous) {
+        this.source = source;
+        this.previous = previous;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void failed(String message) {
+        error = message;
+    }
+
+    synchronized void add(String stage, long nanos, long rows, long items, long bytes, long heapDelta) {
+        long[] totals = stages.computeIfAbsent(stage, key -> new long[4]);
+        totals[0] += nanos;
+        totals[1] += rows;
+        totals[2] += items;
+        totals[3] += bytes;
+        peakHeapDelta = Math.max(peakHeapDelta, heapDelta);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Metrics.endRun(this, previous);
+        StringMapMessage message = new StringMapMessage()
+                .with("run", source)
+                .with("status", error == null ? "ok" : "failed")
+                .with("total_ms", millis(System.nanoTime() - startNanos));
+        synchronized (this) {
+            for (Map.Entry<String, long[]> entry : stages.entrySet()) {
+                long[] totals = entry.getValue();
+                message.with(entry.getKey() + "_ms", millis(totals[0]));
+                if (totals[1] > 0) {
+                    message.with(entry.getKey() + "_rows", totals[1]);
+                }
+                if (totals[2] > 0) {
+                    message.with(entry.getKey() + "_items", totals[2]);
+                }
+                if (totals[3] > 0) {
+                    message.with(entry.getKey() + "_bytes", totals[3]);
+                }
+            }
+            message.with("heap_peak_delta_kb", peakHeapDelta / 1024);
+        }
+        if (error != null) {
+            message.with("error", error);
+        }
+        Metrics.LOG.info(message);
+    }
+
+    static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,53 @@
+package org.app.metrics;
+
+/**
+ * A timed pipeline stage, opened with {@link Metrics#stage(String)} in a try-with-resources block. Counters
+ * set before closing are reported with the duration to JFR, the cumulative registry and the current
+ * {@link Run}.
+ */
+public final class Stage implements AutoCloseable {
+    private final String name;
+    private final Run run;
+    private final Object event;
+    private final long startNanos;
+    private final long startHeap;
+    private long rows;
+    private long items;
+    private long bytes;
+    private boolean closed;
+
+    Stage(String name, Run run) {
+        this.name = name;
+        this.run = run;
+        event = StageEvents.begin();
+        startHeap = Metrics.enterStage();
+        startNanos = System.nanoTime();
+    }
+
+    public Stage rows(long value) {
+        rows = value;
+        return this;
+    }
+
+    public Stage items(long value) {
+        items = value;
+        return this;
+    }
+
+    public Stage bytes(long value) {
+        bytes = value;
+        return this;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        long nanos = System.nanoTime() - startNanos;
+        long heapDelta = Metrics.exitStage(startHeap);
+        StageEvents.commit(event, name, run == null ? null : run.getSource(), rows, items, bytes, heapDelta);
+        Metrics.record(name, nanos, rows, items, bytes, heapDelta, run);
+    }
+}
@@ -0,0 +1,39 @@
+package org.app.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering one pipeline stage; free unless a recording has it enabled.
+ */
+@Name("org.app.Stage")
+@Label("T2UK Stage")
+@Category("T2UK")
+@Description("One stage of reading a borderou or generating a CC015C declaration")
+@StackTrace(false)
+class StageEvent extends Event {
+    @Label("Stage")
+    String stage;
+
+    @Label("Source")
+    String source;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Items")
+    long items;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytes;
+
+    @Label("Peak Heap Delta")
+    @DataAmount
+    long heapDelta;
+}
@@ -0,0 +1,51 @@
+package org.app.metrics;
+
+/**
+ * Emits {@link StageEvent}s when the JRE has Flight Recorder and does nothing otherwise (Java 8 before 8u262),
+ * so that {@link StageEvent}, a subclass of {@code jdk.jfr.Event}, is only ever loaded once JFR is known to exist.
+ */
+final class StageEvents {
+    private static final boolean AVAILABLE = jfrAvailable();
+
+    private StageEvents() {
+    }
+
+    /**
+     * Returns a begun event, or {@code null} without JFR.
+     */
+    static Object begin() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        StageEvent event = new StageEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commit(Object begun, String stage, String source, long rows, long items, long bytes,
+                       long heapDelta) {
+        if (begun == null) {
+            return;
+        }
+        StageEvent event = (StageEvent) begun;
+        event.end();
+        if (event.shouldCommit()) {
+            event.stage = stage;
+            event.source = source;
+            event.rows = rows;
+            event.items = items;
+            event.bytes = bytes;
+            event.heapDelta = heapDelta;
+            event.commit();
+        }
+    }
+
+    private static boolean jfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, StageEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.app.model;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Reusable, mutable view of a run of characters, used to hand column values to a writer without creating a
+ * String per row. The slice either points into another array or into its own formatting buffer.
+ */
+public final class CharSlice implements CharSequence {
+    private char[] buffer = new char[32];
+    private char[] array = buffer;
+    private int offset;
+    private int length;
+
+    CharSlice view(char[] source, int sourceOffset, int sourceLength) {
+        array = source;
+        offset = sourceOffset;
+        length = sourceLength;
+        return this;
+    }
+
+    /**
+     * Points the slice at its own buffer, grown to at least {@code capacity}, and returns that buffer.
+     */
+    char[] buffer(int capacity) {
+        if (buffer.length < capacity) {
+            buffer = new char[Math.max(capacity, buffer.length * 2)];
+        }
+        array = buffer;
+        offset = 0;
+        length = 0;
+        return buffer;
+    }
+
+    CharSlice length(int newLength) {
+        length = newLength;
+        return this;
+    }
+
+    CharSlice copyOf(String value) {
+        value.getChars(0, value.length(), buffer(value.length()), 0);
+        return length(value.length());
+    }
+
+    public CharSlice setInt(int value) {
+        char[] target = buffer(11);
+        long remaining = Math.abs((long) value);
+        int position = 11;
+        do {
+            target[--position] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (value < 0) {
+            target[--position] = '-';
+        }
+        int count = 11 - position;
+        System.arraycopy(target, position, target, 0, count);
+        return length(count);
+    }
+
+    public void write(Writer writer, int start, int end) throws IOException {
+        writer.write(array, offset + start, end - start);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return array[offset + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(array, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(array, offset, length);
+    }
+}
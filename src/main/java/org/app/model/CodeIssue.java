@@ -0,0 +1,55 @@
+package org.app.model;
+
+/**
+ * An item whose HS code is not in the tariff reference or is not valid on the declaration date.
+ */
+public class CodeIssue {
+    public enum Problem {
+        INVALID,
+        EXPIRED
+    }
+
+    private final String sheet;
+    private final int rowNumber;
+    private final String code;
+    private final Problem problem;
+
+    /**
+     * @param rowNumber 1-based row number in the source sheet
+     */
+    public CodeIssue(int rowNumber, String code, Problem problem) {
+        this(null, rowNumber, code, problem);
+    }
+
+    /**
+     * @param sheet name of the source sheet when the borderou has several, otherwise {@code null}
+     */
+    public CodeIssue(String sheet, int rowNumber, String code, Problem problem) {
+        this.sheet = sheet;
+        this.rowNumber = rowNumber;
+        this.code = code;
+        this.problem = problem;
+    }
+
+    public String getSheet() {
+        return sheet;
+    }
+
+    public int getRowNumber() {
+        return rowNumber;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public Problem getProblem() {
+        return problem;
+    }
+
+    @Override
+    public String toString() {
+        return (sheet != null ? "Sheet " + sheet + ", row " : "Row ") + rowNumber + ": commodity code " + code
+                + (problem == Problem.EXPIRED ? " has expired" : " not in the nomenclature");
+    }
+}
@@ -0,0 +1,414 @@
+package org.app.model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Column-oriented {@link ExcelData} for large borderouri. Descriptions and HS codes are stored once in a shared
+ * dictionary and referenced by id, AWBs are packed into one character array, and masses are kept as whole grams
+ * in a {@code long[]}. Masses that are not a whole number of grams are kept exactly on the side, so totals and
+ * formatted values are the same as with {@link BigDecimal} items. {@link #getItems()} is a lazily materialized view.
+ */
+public class ColumnarExcelData extends ExcelData {
+    /** Masses are stored in kilograms scaled by 10^3, i.e. grams. */
+    public static final int MASS_SCALE = 3;
+
+    private final String[] dictionary;
+    private final int[] descriptionIds;
+    private final int[] codeIds;
+    private final char[] awbChars;
+    private final int[] awbEnds;
+    private final long[] grams;
+    private final Map<Integer, BigDecimal> exactMasses;
+    private final int offset;
+    private final int size;
+    private final List<Item> itemView = new ItemView();
+
+    private ColumnarExcelData(String[] dictionary, int[] descriptionIds, int[] codeIds, char[] awbChars,
+                              int[] awbEnds, long[] grams, Map<Integer, BigDecimal> exactMasses, int offset,
+                              int size, BigDecimal totalGrossMass, List<CodeIssue> codeIssues) {
+        super(null, totalGrossMass, codeIssues);
+        this.dictionary = dictionary;
+        this.descriptionIds = descriptionIds;
+        this.codeIds = codeIds;
+        this.awbChars = awbChars;
+        this.awbEnds = awbEnds;
+        this.grams = grams;
+        this.exactMasses = exactMasses;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    @Override
+    public List<Item> getItems() {
+        return itemView;
+    }
+
+    @Override
+    public ExcelData subData(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("Range " + fromIndex + ".." + toIndex + " of " + size);
+        }
+        return new ColumnarExcelData(dictionary, descriptionIds, codeIds, awbChars, awbEnds, grams, exactMasses,
+                offset + fromIndex, toIndex - fromIndex,
+                total(grams, exactMasses, offset + fromIndex, offset + toIndex), null);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getDescription(int row) {
+        return dictionary[descriptionIds[index(row)]];
+    }
+
+    public String getCode(int row) {
+        return dictionary[codeIds[index(row)]];
+    }
+
+    public String getAwb(int row) {
+        int index = index(row);
+        int start = index == 0 ? 0 : awbEnds[index - 1];
+        return new String(awbChars, start, awbEnds[index] - start);
+    }
+
+    /**
+     * Points {@code slice} at the AWB of {@code row} without copying it.
+     */
+    public CharSlice getAwb(int row, CharSlice slice) {
+        int index = index(row);
+        int start = index == 0 ? 0 : awbEnds[index - 1];
+        return slice.view(awbChars, start, awbEnds[index] - start);
+    }
+
+    public BigDecimal getKgs(int row) {
+        int index = index(row);
+        BigDecimal exact = exactMasses.get(index);
+        return exact != null ? exact : BigDecimal.valueOf(grams[index], MASS_SCALE);
+    }
+
+    /**
+     * Formats the mass of {@code row} in kilograms into {@code slice}, as a plain number without trailing zeros.
+     * Whole-gram masses are formatted without allocating.
+     */
+    public CharSlice formatKgs(int row, CharSlice slice) {
+        int index = index(row);
+        BigDecimal exact = exactMasses.get(index);
+        if (exact != null) {
+            BigDecimal normalized = exact.stripTrailingZeros();
+            if (normalized.scale() < 0) {
+                normalized = normalized.setScale(0);
+            }
+            return slice.copyOf(normalized.toPlainString());
+        }
+        return formatGrams(grams[index], slice);
+    }
+
+    static CharSlice formatGrams(long value, CharSlice slice) {
+        char[] target = slice.buffer(24);
+        boolean negative = value < 0;
+        long remaining = negative ? -value : value;
+        int fraction = (int) (remaining % 1000);
+        long whole = remaining / 1000;
+        int position = 24;
+        int fractionDigits = MASS_SCALE;
+        while (fractionDigits > 0 && fraction % 10 == 0) {
+            fraction /= 10;
+            fractionDigits--;
+        }
+        for (int i = 0; i < fractionDigits; i++) {
+            target[--position] = (char) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        if (fractionDigits > 0) {
+            target[--position] = '.';
+        }
+        do {
+            target[--position] = (char) ('0' + whole % 10);
+            whole /= 10;
+        } while (whole != 0);
+        if (negative) {
+            target[--position] = '-';
+        }
+        int length = 24 - position;
+        System.arraycopy(target, position, target, 0, length);
+        return slice.length(length);
+    }
+
+    /**
+     * Writes the columns, the total and the code issues in a compact binary form read by {@link #readFrom}.
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(dictionary.length);
+        for (String value : dictionary) {
+            writeString(out, value);
+        }
+        out.writeInt(size);
+        for (int i = offset; i < offset + size; i++) {
+            out.writeInt(descriptionIds[i]);
+            out.writeInt(codeIds[i]);
+            out.writeLong(grams[i]);
+        }
+        int awbStart = offset == 0 ? 0 : awbEnds[offset - 1];
+        writeString(out, new String(awbChars, awbStart, size == 0 ? 0 : awbEnds[offset + size - 1] - awbStart));
+        for (int i = offset; i < offset + size; i++) {
+            out.writeInt(awbEnds[i] - awbStart);
+        }
+        int exactCount = 0;
+        for (Integer index : exactMasses.keySet()) {
+            if (index >= offset && index < offset + size) {
+                exactCount++;
+            }
+        }
+        out.writeInt(exactCount);
+        for (Map.Entry<Integer, BigDecimal> entry : exactMasses.entrySet()) {
+            if (entry.getKey() >= offset && entry.getKey() < offset + size) {
+                out.writeInt(entry.getKey() - offset);
+                writeString(out, entry.getValue().toString());
+            }
+        }
+        out.writeInt(getCodeIssues().size());
+        for (CodeIssue issue : getCodeIssues()) {
+            writeString(out, issue.getSheet() == null ? "" : issue.getSheet());
+            out.writeInt(issue.getRowNumber());
+            writeString(out, issue.getCode());
+            out.writeByte(issue.getProblem().ordinal());
+        }
+    }
+
+    public static ColumnarExcelData readFrom(DataInputStream in) throws IOException {
+        String[] dictionary = new String[in.readInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString(in);
+        }
+        int size = in.readInt();
+        int[] descriptionIds = new int[size];
+        int[] codeIds = new int[size];
+        long[] grams = new long[size];
+        for (int i = 0; i < size; i++) {
+            descriptionIds[i] = checkId(in.readInt(), dictionary);
+            codeIds[i] = checkId(in.readInt(), dictionary);
+            grams[i] = in.readLong();
+        }
+        char[] awbChars = readString(in).toCharArray();
+        int[] awbEnds = new int[size];
+        for (int i = 0; i < size; i++) {
+            awbEnds[i] = in.readInt();
+            if (awbEnds[i] < (i == 0 ? 0 : awbEnds[i - 1]) || awbEnds[i] > awbChars.length) {
+                throw new IOException("Corrupt AWB column.");
+            }
+        }
+        int exactCount = in.readInt();
+        Map<Integer, BigDecimal> exactMasses = exactCount == 0
+                ? Collections.<Integer, BigDecimal>emptyMap() : new HashMap<>();
+        for (int i = 0; i < exactCount; i++) {
+            exactMasses.put(in.readInt(), new BigDecimal(readString(in)));
+        }
+        int issueCount = in.readInt();
+        List<CodeIssue> codeIssues = new ArrayList<>();
+        CodeIssue.Problem[] problems = CodeIssue.Problem.values();
+        for (int i = 0; i < issueCount; i++) {
+            String sheet = readString(in);
+            int rowNumber = in.readInt();
+            String code = readString(in);
+            int problem = in.readByte();
+            if (problem < 0 || problem >= problems.length) {
+                throw new IOException("Corrupt code issue.");
+            }
+            codeIssues.add(new CodeIssue(sheet.isEmpty() ? null : sheet, rowNumber, code, problems[problem]));
+        }
+        return new ColumnarExcelData(dictionary, descriptionIds, codeIds, awbChars, awbEnds, grams, exactMasses,
+                0, size, total(grams, exactMasses, 0, size), codeIssues);
+    }
+
+    private static int checkId(int id, String[] dictionary) throws IOException {
+        if (id < 0 || id >= dictionary.length) {
+            throw new IOException("Corrupt dictionary reference.");
+        }
+        return id;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupt string length.");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int index(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        return offset + row;
+    }
+
+    private static BigDecimal total(long[] grams, Map<Integer, BigDecimal> exactMasses, int from, int to) {
+        long sum = 0;
+        BigDecimal extra = BigDecimal.ZERO;
+        for (int i = from; i < to; i++) {
+            sum = Math.addExact(sum, grams[i]);
+        }
+        for (Map.Entry<Integer, BigDecimal> entry : exactMasses.entrySet()) {
+            if (entry.getKey() >= from && entry.getKey() < to) {
+                extra = extra.add(entry.getValue());
+            }
+        }
+        BigDecimal total = BigDecimal.valueOf(sum, MASS_SCALE);
+        return extra.signum() == 0 ? total : total.add(extra);
+    }
+
+    private final class ItemView extends AbstractList<Item> implements RandomAccess {
+        @Override
+        public Item get(int row) {
+            return new Item(getDescription(row), getCode(row), getAwb(row), getKgs(row));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    public static class Builder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private String[] dictionary = new String[64];
+        private int[] descriptionIds = new int[1024];
+        private int[] codeIds = new int[1024];
+        private char[] awbChars = new char[16 * 1024];
+        private int[] awbEnds = new int[1024];
+        private long[] grams = new long[1024];
+        private final Map<Integer, BigDecimal> exactMasses = new HashMap<>();
+        private final List<CodeIssue> codeIssues = new ArrayList<>();
+        private int size;
+        private int awbLength;
+
+        public Builder add(Item item) {
+            return add(item.getDescription(), item.getCode(), item.getAwb(), item.getKgs());
+        }
+
+        public Builder add(String description, String code, String awb, BigDecimal kgs) {
+            if (size == grams.length) {
+                int capacity = size + (size >> 1);
+                descriptionIds = Arrays.copyOf(descriptionIds, capacity);
+                codeIds = Arrays.copyOf(codeIds, capacity);
+                awbEnds = Arrays.copyOf(awbEnds, capacity);
+                grams = Arrays.copyOf(grams, capacity);
+            }
+            descriptionIds[size] = id(description);
+            codeIds[size] = id(code);
+            if (awbLength + awb.length() > awbChars.length) {
+                awbChars = Arrays.copyOf(awbChars, Math.max(awbLength + awb.length(), awbChars.length * 2));
+            }
+            awb.getChars(0, awb.length(), awbChars, awbLength);
+            awbLength += awb.length();
+            awbEnds[size] = awbLength;
+            grams[size] = toGrams(kgs);
+            size++;
+            return this;
+        }
+
+        /**
+         * Appends every row and code issue of {@code data}, e.g. to merge sheets parsed separately.
+         */
+        public Builder addAll(ColumnarExcelData data) {
+            int[] remapped = new int[data.dictionary.length];
+            Arrays.fill(remapped, -1);
+            for (int row = 0; row < data.size; row++) {
+                int index = data.offset + row;
+                if (size == grams.length) {
+                    int capacity = size + (size >> 1);
+                    descriptionIds = Arrays.copyOf(descriptionIds, capacity);
+                    codeIds = Arrays.copyOf(codeIds, capacity);
+                    awbEnds = Arrays.copyOf(awbEnds, capacity);
+                    grams = Arrays.copyOf(grams, capacity);
+                }
+                descriptionIds[size] = remap(data, data.descriptionIds[index], remapped);
+                codeIds[size] = remap(data, data.codeIds[index], remapped);
+                int start = index == 0 ? 0 : data.awbEnds[index - 1];
+                int length = data.awbEnds[index] - start;
+                if (awbLength + length > awbChars.length) {
+                    awbChars = Arrays.copyOf(awbChars, Math.max(awbLength + length, awbChars.length * 2));
+                }
+                System.arraycopy(data.awbChars, start, awbChars, awbLength, length);
+                awbLength += length;
+                awbEnds[size] = awbLength;
+                grams[size] = data.grams[index];
+                BigDecimal exact = data.exactMasses.get(index);
+                if (exact != null) {
+                    exactMasses.put(size, exact);
+                }
+                size++;
+            }
+            codeIssues.addAll(data.getCodeIssues());
+            return this;
+        }
+
+        private int remap(ColumnarExcelData data, int id, int[] remapped) {
+            if (remapped[id] < 0) {
+                remapped[id] = id(data.dictionary[id]);
+            }
+            return remapped[id];
+        }
+
+        public Builder addCodeIssue(CodeIssue issue) {
+            codeIssues.add(issue);
+            return this;
+        }
+
+        private long toGrams(BigDecimal kgs) {
+            if (kgs.scale() <= MASS_SCALE && kgs.precision() - kgs.scale() < 16) {
+                return kgs.movePointRight(MASS_SCALE).longValue();
+            }
+            try {
+                return kgs.setScale(MASS_SCALE, RoundingMode.UNNECESSARY).longValueExact();
+            } catch (ArithmeticException ex) {
+                exactMasses.put(size, kgs);
+                return 0;
+            }
+        }
+
+        private int id(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = ids.size();
+                if (id == dictionary.length) {
+                    dictionary = Arrays.copyOf(dictionary, id * 2);
+                }
+                dictionary[id] = value;
+                ids.put(value, id);
+            }
+            return id;
+        }
+
+        public ColumnarExcelData build() {
+            long[] builtGrams = Arrays.copyOf(grams, size);
+            Map<Integer, BigDecimal> builtExact = exactMasses.isEmpty()
+                    ? Collections.<Integer, BigDecimal>emptyMap() : new HashMap<>(exactMasses);
+            return new ColumnarExcelData(Arrays.copyOf(dictionary, ids.size()), Arrays.copyOf(descriptionIds, size),
+                    Arrays.copyOf(codeIds, size), Arrays.copyOf(awbChars, awbLength), Arrays.copyOf(awbEnds, size),
+                    builtGrams, builtExact, 0, size, total(builtGrams, builtExact, 0, size),
+                    new ArrayList<>(codeIssues));
+        }
+    }
+}
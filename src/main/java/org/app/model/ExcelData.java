@@ -7,10 +7,16 @@ import java.util.List;
 public class ExcelData {
     private final List<Item> items;
     private final BigDecimal totalGrossMass;
+    private final List<CodeIssue> codeIssues;
 
     public ExcelData(List<Item> items, BigDecimal totalGrossMass) {
+        this(items, totalGrossMass, null);
+    }
+
+    public ExcelData(List<Item> items, BigDecimal totalGrossMass, List<CodeIssue> codeIssues) {
         this.items = items == null ? Collections.emptyList() : Collections.unmodifiableList(items);
         this.totalGrossMass = totalGrossMass;
+        this.codeIssues = codeIssues == null ? Collections.emptyList() : Collections.unmodifiableList(codeIssues);
     }
 
     public List<Item> getItems() {
@@ -20,4 +26,23 @@ public class ExcelData {
     public BigDecimal getTotalGrossMass() {
         return totalGrossMass;
     }
+
+    /**
+     * HS codes flagged against the tariff reference while reading; empty when no reference was configured.
+     */
+    public List<CodeIssue> getCodeIssues() {
+        return codeIssues;
+    }
+
+    /**
+     * Returns the items from {@code fromIndex} (inclusive) to {@code toIndex} (exclusive) with their own total.
+     */
+    public ExcelData subData(int fromIndex, int toIndex) {
+        List<Item> part = items.subList(fromIndex, toIndex);
+        BigDecimal total = BigDecimal.ZERO;
+        for (Item item : part) {
+            total = total.add(item.getKgs());
+        }
+        return new ExcelData(part, total);
+    }
 }
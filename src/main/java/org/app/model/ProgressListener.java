@@ -0,0 +1,37 @@
+package org.app.model;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Progress of a read or generation, and a way for the caller to cancel it. Callbacks run on the working
+ * thread; during split generation they can arrive from several threads at once.
+ */
+public interface ProgressListener {
+    ProgressListener NONE = new ProgressListener() {
+    };
+
+    /**
+     * Called after every item read, with the number of items read so far.
+     */
+    default void rowsRead(int rows) {
+    }
+
+    /**
+     * Called after every item written, with the number of items written so far.
+     */
+    default void itemsWritten(int items) {
+    }
+
+    default boolean isCancelled() {
+        return false;
+    }
+
+    /**
+     * Throws {@link CancellationException} once the caller has asked to stop.
+     */
+    default void checkCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException("Generation cancelled.");
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.app.model;
+
+/**
+ * A problem with one row of a borderou, found by a validation pass that reads the whole file instead of stopping
+ * at the first bad row.
+ */
+public class RowIssue {
+    public enum Problem {
+        MISSING_DESCRIPTION,
+        MISSING_CODE,
+        MISSING_WEIGHT,
+        INVALID_WEIGHT,
+        INVALID_CODE,
+        EXPIRED_CODE,
+        DUPLICATE_AWB,
+        GAP
+    }
+
+    private final String sheet;
+    private final int rowNumber;
+    private final Problem problem;
+    private final String value;
+    private final String relatedSheet;
+    private final int relatedRowNumber;
+
+    /**
+     * @param sheet            name of the source sheet when the borderou has several, otherwise {@code null}
+     * @param rowNumber        1-based row number in the source sheet
+     * @param value            the offending cell text: the weight, HS code or AWB; {@code null} when missing
+     * @param relatedRowNumber for a duplicate AWB the row it was first seen in, for a gap the first item row
+     *                         after it; otherwise 0
+     */
+    public RowIssue(String sheet, int rowNumber, Problem problem, String value, String relatedSheet,
+                    int relatedRowNumber) {
+        this.sheet = sheet;
+        this.rowNumber = rowNumber;
+        this.problem = problem;
+        this.value = value;
+        this.relatedSheet = relatedSheet;
+        this.relatedRowNumber = relatedRowNumber;
+    }
+
+    public RowIssue(String sheet, int rowNumber, Problem problem, String value) {
+        this(sheet, rowNumber, problem, value, null, 0);
+    }
+
+    public static RowIssue of(CodeIssue issue) {
+        return new RowIssue(issue.getSheet(), issue.getRowNumber(),
+                issue.getProblem() == CodeIssue.Problem.EXPIRED ? Problem.EXPIRED_CODE : Problem.INVALID_CODE,
+                issue.getCode());
+    }
+
+    public String getSheet() {
+        return sheet;
+    }
+
+    public int getRowNumber() {
+        return rowNumber;
+    }
+
+    public Problem getProblem() {
+        return problem;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getRelatedSheet() {
+        return relatedSheet;
+    }
+
+    public int getRelatedRowNumber() {
+        return relatedRowNumber;
+    }
+
+    /**
+     * The problem alone, without the row, e.g. for a report that lists the row in its own column.
+     */
+    public String getMessage() {
+        switch (problem) {
+            case MISSING_DESCRIPTION:
+                return "missing goods description";
+            case MISSING_CODE:
+                return "missing commodity code";
+            case MISSING_WEIGHT:
+                return "missing weight";
+            case INVALID_WEIGHT:
+                return "invalid weight \"" + value + "\"";
+            case INVALID_CODE:
+                return "commodity code " + value + " not in the nomenclature";
+            case EXPIRED_CODE:
+                return "commodity code " + value + " has expired";
+            case DUPLICATE_AWB:
+                return "AWB " + value + " already appears on " + related();
+            case GAP:
+                return "row without an AWB between items; reading stops here and ignores the items from "
+                        + related();
+            default:
+                throw new IllegalStateException("Unknown problem: " + problem);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return (sheet != null ? "Sheet " + sheet + ", row " : "Row ") + rowNumber + ": " + getMessage();
+    }
+
+    private String related() {
+        return (relatedSheet != null ? "sheet " + relatedSheet + ", row " : "row ") + relatedRowNumber;
+    }
+}
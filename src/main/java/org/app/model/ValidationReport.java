@@ -0,0 +1,58 @@
+package org.app.model;
+
+import com.opencsv.CSVWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything a validation pass found in a borderou, in the order of the rows.
+ */
+public class ValidationReport {
+    private static final String[] CSV_HEADER = {"sheet", "row", "problem", "value", "related_sheet", "related_row",
+            "message"};
+
+    private final List<RowIssue> issues;
+    private final int itemCount;
+
+    /**
+     * @param itemCount rows with an AWB, i.e. the items a conversion would try to create
+     */
+    public ValidationReport(List<RowIssue> issues, int itemCount) {
+        this.issues = Collections.unmodifiableList(issues);
+        this.itemCount = itemCount;
+    }
+
+    public List<RowIssue> getIssues() {
+        return issues;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public boolean isClean() {
+        return issues.isEmpty();
+    }
+
+    /**
+     * Writes one line per issue, after a header line; the writer is not closed.
+     */
+    public void writeCsv(Writer writer) throws IOException {
+        CSVWriter csv = new CSVWriter(writer);
+        csv.writeNext(CSV_HEADER);
+        for (RowIssue issue : issues) {
+            csv.writeNext(new String[]{
+                    issue.getSheet() == null ? "" : issue.getSheet(),
+                    String.valueOf(issue.getRowNumber()),
+                    issue.getProblem().name(),
+                    issue.getValue() == null ? "" : issue.getValue(),
+                    issue.getRelatedSheet() == null ? "" : issue.getRelatedSheet(),
+                    issue.getRelatedRowNumber() == 0 ? "" : String.valueOf(issue.getRelatedRowNumber()),
+                    issue.getMessage()});
+        }
+        csv.flush();
+    }
+}
@@ -0,0 +1,125 @@
+package org.app.tariff;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Reads the tariff reference from an MS Access file over a single UCanAccess connection. The table is the
+ * first one with a code column; optional start/end date columns give each code's validity.
+ */
+final class AccessTariffLoader {
+    private static final Set<String> CODE_COLUMNS = names("cod", "code", "codnc", "codtarifar", "codtaric", "taric",
+            "hscode", "hs", "nc", "cn", "cncode", "incadrare");
+    private static final Set<String> FROM_COLUMNS = names("validfrom", "datainceput", "inceput", "valabildela",
+            "startdate", "datestart", "dela");
+    private static final Set<String> TO_COLUMNS = names("validto", "datasfarsit", "sfarsit", "valabilpanala",
+            "dataexpirare", "expira", "enddate", "dateend", "panala");
+
+    private AccessTariffLoader() {
+    }
+
+    static CommodityCodeIndex load(File database) throws SQLException {
+        String url = "jdbc:ucanaccess://" + database.getAbsolutePath()
+                + ";memory=false;immediatelyReleaseResources=true";
+        try (Connection connection = DriverManager.getConnection(url)) {
+            TableColumns table = findTable(connection.getMetaData());
+            if (table == null) {
+                throw new IllegalArgumentException("No table with a commodity code column found in " + database);
+            }
+            CommodityCodeIndex.Builder builder = new CommodityCodeIndex.Builder(16 * 1024);
+            try (Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery(table.query())) {
+                while (rows.next()) {
+                    String code = rows.getString(1);
+                    if (code == null) {
+                        continue;
+                    }
+                    int from = table.from == null ? Integer.MIN_VALUE : epochDay(rows.getDate(2), Integer.MIN_VALUE);
+                    int to = table.to == null ? CommodityCodeIndex.OPEN_ENDED
+                            : epochDay(rows.getDate(table.from == null ? 2 : 3), CommodityCodeIndex.OPEN_ENDED);
+                    builder.add(code.trim(), from, to);
+                }
+            }
+            return builder.build();
+        }
+    }
+
+    private static int epochDay(Date date, int missing) {
+        return date == null ? missing : (int) date.toLocalDate().toEpochDay();
+    }
+
+    private static TableColumns findTable(DatabaseMetaData metaData) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (ResultSet result = metaData.getTables(null, null, "%", new String[]{"TABLE"})) {
+            while (result.next()) {
+                tables.add(result.getString("TABLE_NAME"));
+            }
+        }
+        for (String table : tables) {
+            TableColumns columns = new TableColumns(table);
+            try (ResultSet result = metaData.getColumns(null, null, table, "%")) {
+                while (result.next()) {
+                    String column = result.getString("COLUMN_NAME");
+                    String name = normalize(column);
+                    if (columns.code == null && CODE_COLUMNS.contains(name)) {
+                        columns.code = column;
+                    } else if (columns.from == null && FROM_COLUMNS.contains(name)) {
+                        columns.from = column;
+                    } else if (columns.to == null && TO_COLUMNS.contains(name)) {
+                        columns.to = column;
+                    }
+                }
+            }
+            if (columns.code != null) {
+                return columns;
+            }
+        }
+        return null;
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    private static Set<String> names(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+
+    private static final class TableColumns {
+        private final String table;
+        private String code;
+        private String from;
+        private String to;
+
+        private TableColumns(String table) {
+            this.table = table;
+        }
+
+        private String query() {
+            StringBuilder sql = new StringBuilder("SELECT ").append(quote(code));
+            if (from != null) {
+                sql.append(", ").append(quote(from));
+            }
+            if (to != null) {
+                sql.append(", ").append(quote(to));
+            }
+            return sql.append(" FROM ").append(quote(table)).toString();
+        }
+
+        private static String quote(String identifier) {
+            return "[" + identifier + "]";
+        }
+    }
+}
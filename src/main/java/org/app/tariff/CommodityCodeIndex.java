@@ -0,0 +1,207 @@
+package org.app.tariff;
+
+import org.app.model.CodeIssue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Immutable lookup table of HS/CN commodity codes and their validity periods, held in primitive arrays.
+ * Every code is also entered under its 6- and 8-digit prefixes, so a 6-digit subheading matches when the
+ * reference only lists 8- or 10-digit codes. Lookups are a single open-addressing probe sequence and do not
+ * allocate.
+ */
+public final class CommodityCodeIndex {
+    static final int OPEN_ENDED = Integer.MAX_VALUE;
+
+    private static final int MAX_DIGITS = 10;
+
+    private final long[] keys;
+    private final int[] validFrom;
+    private final int[] validTo;
+    private final int size;
+    private final int mask;
+    private final long fingerprint;
+
+    private CommodityCodeIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        keys = new long[capacity];
+        validFrom = new int[capacity];
+        validTo = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+        fingerprint = 0;
+    }
+
+    private CommodityCodeIndex(long[] keys, int[] validFrom, int[] validTo, int size) {
+        this.keys = keys;
+        this.validFrom = validFrom;
+        this.validTo = validTo;
+        this.size = size;
+        this.mask = keys.length - 1;
+        long sum = size;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                long entry = (keys[slot] * 31 + validFrom[slot]) * 31 + validTo[slot];
+                sum += entry * 0x9E3779B97F4A7C15L ^ entry >>> 29;
+            }
+        }
+        this.fingerprint = sum;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a hash of the codes and their validity that does not depend on table layout, so an index
+     * loaded from the cache has the same fingerprint as one built from the database.
+     */
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Checks {@code code} against the reference on {@code epochDay}; returns {@code null} when the code is valid.
+     */
+    public CodeIssue.Problem check(String code, long epochDay) {
+        long key = key(code);
+        if (key == 0) {
+            return CodeIssue.Problem.INVALID;
+        }
+        int slot = find(key);
+        if (keys[slot] == 0) {
+            return CodeIssue.Problem.INVALID;
+        }
+        if (epochDay < validFrom[slot]) {
+            return CodeIssue.Problem.INVALID;
+        }
+        return epochDay > validTo[slot] ? CodeIssue.Problem.EXPIRED : null;
+    }
+
+    /**
+     * Encodes a code of 2 to 10 digits (spaces and dots ignored) as its numeric value and digit count, so
+     * leading zeros are kept apart; returns 0 for anything else.
+     */
+    static long key(CharSequence code) {
+        long value = 0;
+        int digits = 0;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_DIGITS) {
+                    return 0;
+                }
+                value = value * 10 + (c - '0');
+            } else if (c != ' ' && c != '.') {
+                return 0;
+            }
+        }
+        return digits < 2 ? 0 : value << 4 | digits;
+    }
+
+    private static long prefix(long key, int digits) {
+        long value = key >>> 4;
+        for (int i = (int) (key & 0xF); i > digits; i--) {
+            value /= 10;
+        }
+        return value << 4 | digits;
+    }
+
+    private int find(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                out.writeLong(keys[slot]);
+                out.writeInt(validFrom[slot]);
+                out.writeInt(validTo[slot]);
+            }
+        }
+    }
+
+    static CommodityCodeIndex read(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Corrupt commodity code cache.");
+        }
+        Builder builder = new Builder(count);
+        for (int i = 0; i < count; i++) {
+            builder.put(in.readLong(), in.readInt(), in.readInt());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Collects codes with their validity; a code listed several times is valid from its earliest start to its
+     * latest end.
+     */
+    static final class Builder {
+        private CommodityCodeIndex table;
+        private int size;
+
+        Builder(int expectedSize) {
+            table = new CommodityCodeIndex(expectedSize * 2);
+        }
+
+        /**
+         * @return false when {@code code} is not a 2 to 10 digit code
+         */
+        boolean add(String code, int fromEpochDay, int toEpochDay) {
+            long key = key(code);
+            if (key == 0) {
+                return false;
+            }
+            put(key, fromEpochDay, toEpochDay);
+            int digits = (int) (key & 0xF);
+            for (int prefixDigits = 8; prefixDigits >= 6; prefixDigits -= 2) {
+                if (digits > prefixDigits) {
+                    put(prefix(key, prefixDigits), fromEpochDay, toEpochDay);
+                }
+            }
+            return true;
+        }
+
+        private void put(long key, int fromEpochDay, int toEpochDay) {
+            if ((size + 1) * 2 > table.keys.length) {
+                grow();
+            }
+            int slot = table.find(key);
+            if (table.keys[slot] == 0) {
+                table.keys[slot] = key;
+                table.validFrom[slot] = fromEpochDay;
+                table.validTo[slot] = toEpochDay;
+                size++;
+            } else {
+                table.validFrom[slot] = Math.min(table.validFrom[slot], fromEpochDay);
+                table.validTo[slot] = Math.max(table.validTo[slot], toEpochDay);
+            }
+        }
+
+        private void grow() {
+            CommodityCodeIndex old = table;
+            table = new CommodityCodeIndex(old.keys.length);
+            for (int slot = 0; slot < old.keys.length; slot++) {
+                if (old.keys[slot] != 0) {
+                    int target = table.find(old.keys[slot]);
+                    table.keys[target] = old.keys[slot];
+                    table.validFrom[target] = old.validFrom[slot];
+                    table.validTo[target] = old.validTo[slot];
+                }
+            }
+        }
+
+        CommodityCodeIndex build() {
+            return new CommodityCodeIndex(table.keys, table.validFrom, table.validTo, size);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.app.tariff;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Tariff reference backed by an MS Access file. The table is read once into a {@link CommodityCodeIndex} and
+ * stored in a binary cache file; later runs load the cache unless the .accdb size or modification time changed.
+ * {@link #current()} only stats the database file, so it is cheap to call once per borderou.
+ */
+public class CommodityCodes {
+    private static final int CACHE_MAGIC = 0x48534958;
+    private static final int CACHE_VERSION = 1;
+
+    private final File database;
+    private final File cacheFile;
+
+    private CommodityCodeIndex index;
+    private long indexLength = -1;
+    private long indexModified = -1;
+
+    public CommodityCodes(File database) {
+        this(database, defaultCacheFile(database));
+    }
+
+    public CommodityCodes(File database, File cacheFile) {
+        this.database = database;
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Returns the index for the database as it is now, reloading it if the file changed since the last call.
+     */
+    public synchronized CommodityCodeIndex current() throws Exception {
+        if (!database.isFile()) {
+            throw new IllegalArgumentException("Tariff database not found: " + database);
+        }
+        long length = database.length();
+        long modified = database.lastModified();
+        if (index != null && length == indexLength && modified == indexModified) {
+            return index;
+        }
+        CommodityCodeIndex loaded = readCache(length, modified);
+        if (loaded == null) {
+            loaded = AccessTariffLoader.load(database);
+            writeCache(loaded, length, modified);
+        }
+        index = loaded;
+        indexLength = length;
+        indexModified = modified;
+        return index;
+    }
+
+    private CommodityCodeIndex readCache(long length, long modified) {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(cacheFile.toPath())))) {
+            if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION
+                    || !in.readUTF().equals(database.getAbsolutePath())
+                    || in.readLong() != length || in.readLong() != modified) {
+                return null;
+            }
+            return CommodityCodeIndex.read(in);
+        } catch (IOException ex) {
+            // unreadable or stale cache; rebuild from the database
+            return null;
+        }
+    }
+
+    private void writeCache(CommodityCodeIndex loaded, long length, long modified) throws IOException {
+        File directory = cacheFile.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create cache directory: " + directory);
+        }
+        Path temp = Files.createTempFile(directory.toPath(), cacheFile.getName(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(CACHE_MAGIC);
+                out.writeInt(CACHE_VERSION);
+                out.writeUTF(database.getAbsolutePath());
+                out.writeLong(length);
+                out.writeLong(modified);
+                loaded.write(out);
+            }
+            Files.move(temp, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static File defaultCacheFile(File database) {
+        String path = database.getAbsolutePath();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(path.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder("hs-");
+            for (int i = 0; i < 8; i++) {
+                name.append(String.format("%02x", digest[i]));
+            }
+            return new File(new File(System.getProperty("user.home"), ".t2uk"), name.append(".idx").toString());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -1,7 +1,18 @@
 package org.app.ui;
 
+import org.app.awb.AwbIndex;
 import org.app.excel.ExcelReader;
+import org.app.metrics.Metrics;
+import org.app.metrics.Run;
+import org.app.model.CodeIssue;
 import org.app.model.ExcelData;
+import org.app.model.Item;
+import org.app.model.ProgressListener;
+import org.app.model.RowIssue;
+import org.app.model.ValidationReport;
+import org.app.xml.DeclarationPart;
+import org.app.xml.SchemaIssue;
+import org.app.xml.SchemaValidationException;
 import org.app.xml.XmlGenerator;
 
 import javax.swing.JButton;
@@ -10,7 +21,12 @@ import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -18,29 +34,81 @@ import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 public class GeneratorFrame extends JFrame {
-    private final ExcelReader excelReader;
-    private final XmlGenerator xmlGenerator;
+    private static final int MAX_LISTED_ISSUES = 20;
+    private static final int PROGRESS_STEP = 500;
+
+    // set once on the event thread, before the first worker starts
+    private ExcelReader excelReader;
+    private XmlGenerator xmlGenerator;
+    private AwbIndex awbIndex;
+    private AwbIndex.Policy awbPolicy = AwbIndex.Policy.WARN;
 
     private final JTextField excelField = new JTextField(28);
     private final JTextField lrnField = new JTextField(28);
+    private final JTextField maxItemsField = new JTextField(6);
+    private final JButton browseButton = new JButton("Browse...");
     private final JButton generateButton = new JButton("Generate XML");
+    private final JButton validateButton = new JButton("Validate");
+    private final JButton cancelButton = new JButton("Cancel");
+    private final JProgressBar progressBar = new JProgressBar();
     private final JLabel statusLabel = new JLabel(" ");
 
     private File selectedFile;
+    private GenerateWorker worker;
+    private ValidateWorker validateWorker;
 
     public GeneratorFrame(ExcelReader excelReader, XmlGenerator xmlGenerator) {
-        super("T2 XML Generator");
-        this.excelReader = excelReader;
-        this.xmlGenerator = xmlGenerator;
+        this(excelReader, xmlGenerator, null, AwbIndex.Policy.WARN);
+    }
 
+    /**
+     * @param awbIndex  AWBs declared before, or {@code null}; with {@link AwbIndex.Policy#WARN} the user decides
+     *                  whether to declare AWBs found there again, with {@link AwbIndex.Policy#BLOCK} generation
+     *                  fails
+     */
+    public GeneratorFrame(ExcelReader excelReader, XmlGenerator xmlGenerator, AwbIndex awbIndex,
+                          AwbIndex.Policy awbPolicy) {
+        this();
+        setServices(excelReader, xmlGenerator, awbIndex, awbPolicy);
+    }
+
+    /**
+     * Creates the frame before the reader and generator are ready, so it can show while they are opened;
+     * Generate and Validate stay disabled until {@link #setServices} is called.
+     */
+    public GeneratorFrame() {
+        super("T2 XML Generator");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setContentPane(buildContent());
         pack();
         setLocationRelativeTo(null);
     }
 
+    /**
+     * Hands the frame what it converts with; called on the event dispatch thread, once.
+     */
+    public void setServices(ExcelReader excelReader, XmlGenerator xmlGenerator, AwbIndex awbIndex,
+                            AwbIndex.Policy awbPolicy) {
+        if (this.excelReader != null) {
+            throw new IllegalStateException("The frame already has its reader and generator.");
+        }
+        this.excelReader = excelReader;
+        this.xmlGenerator = xmlGenerator;
+        this.awbIndex = awbIndex;
+        this.awbPolicy = awbPolicy;
+        updateGenerateState();
+    }
+
     private JPanel buildContent() {
         JPanel panel = new JPanel(new GridBagLayout());
         GridBagConstraints gbc = new GridBagConstraints();
@@ -49,11 +117,15 @@ public class GeneratorFrame extends JFrame {
 
         JLabel excelLabel = new JLabel("Excel file:");
         excelField.setEditable(false);
-        JButton browseButton = new JButton("Browse...");
 
         JLabel lrnLabel = new JLabel("LRN:");
+        JLabel maxItemsLabel = new JLabel("Max items:");
+        maxItemsField.setToolTipText("Split into several declarations above this many items; empty = no split");
 
         generateButton.setEnabled(false);
+        validateButton.setEnabled(false);
+        validateButton.setToolTipText("Check every row and list all problems, without generating");
+        cancelButton.setEnabled(false);
 
         gbc.gridx = 0;
         gbc.gridy = 0;
@@ -74,35 +146,49 @@ public class GeneratorFrame extends JFrame {
         panel.add(lrnField, gbc);
         gbc.gridwidth = 1;
 
-        gbc.gridx = 1;
+        gbc.gridx = 0;
         gbc.gridy = 2;
-        panel.add(generateButton, gbc);
+        panel.add(maxItemsLabel, gbc);
+
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.anchor = GridBagConstraints.WEST;
+        panel.add(maxItemsField, gbc);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.anchor = GridBagConstraints.CENTER;
 
         gbc.gridx = 0;
         gbc.gridy = 3;
+        panel.add(validateButton, gbc);
+
+        gbc.gridx = 1;
+        panel.add(generateButton, gbc);
+
+        gbc.gridx = 2;
+        panel.add(cancelButton, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 4;
         gbc.gridwidth = 3;
-        panel.add(statusLabel, gbc);
+        panel.add(progressBar, gbc);
 
-        Runnable updateGenerateState = () -> {
-            boolean hasFile = selectedFile != null && selectedFile.isFile();
-            boolean hasLrn = !lrnField.getText().trim().isEmpty();
-            generateButton.setEnabled(hasFile && hasLrn);
-        };
+        gbc.gridy = 5;
+        panel.add(statusLabel, gbc);
 
         DocumentListener validator = new DocumentListener() {
             @Override
             public void insertUpdate(DocumentEvent e) {
-                updateGenerateState.run();
+                updateGenerateState();
             }
 
             @Override
             public void removeUpdate(DocumentEvent e) {
-                updateGenerateState.run();
+                updateGenerateState();
             }
 
             @Override
             public void changedUpdate(DocumentEvent e) {
-                updateGenerateState.run();
+                updateGenerateState();
             }
         };
 
@@ -110,21 +196,42 @@ public class GeneratorFrame extends JFrame {
 
         browseButton.addActionListener(event -> {
             JFileChooser chooser = new JFileChooser();
-            chooser.setFileFilter(new FileNameExtensionFilter("Excel files (*.xls, *.xlsx)", "xls", "xlsx"));
+            chooser.setFileFilter(new FileNameExtensionFilter("Excel/CSV files (*.xls, *.xlsx, *.csv, *.tsv)",
+                    "xls", "xlsx", "csv", "tsv"));
             int result = chooser.showOpenDialog(this);
             if (result == JFileChooser.APPROVE_OPTION) {
                 selectedFile = chooser.getSelectedFile();
                 excelField.setText(selectedFile.getAbsolutePath());
                 statusLabel.setText(" ");
-                updateGenerateState.run();
+                updateGenerateState();
             }
         });
 
         generateButton.addActionListener(event -> handleGenerate());
+        validateButton.addActionListener(event -> handleValidate());
+        cancelButton.addActionListener(event -> {
+            if (worker != null) {
+                worker.requestCancel();
+            } else if (validateWorker != null) {
+                validateWorker.requestCancel();
+            } else {
+                return;
+            }
+            cancelButton.setEnabled(false);
+            statusLabel.setText("Cancelling...");
+        });
 
         return panel;
     }
 
+    private void updateGenerateState() {
+        boolean hasFile = selectedFile != null && selectedFile.isFile();
+        boolean hasLrn = !lrnField.getText().trim().isEmpty();
+        boolean idle = excelReader != null && worker == null && validateWorker == null;
+        generateButton.setEnabled(hasFile && hasLrn && idle);
+        validateButton.setEnabled(hasFile && idle);
+    }
+
     private void handleGenerate() {
         if (selectedFile == null || !selectedFile.isFile()) {
             JOptionPane.showMessageDialog(this, "Please choose a valid Excel file.", "Missing file",
@@ -137,31 +244,401 @@ public class GeneratorFrame extends JFrame {
                     JOptionPane.WARNING_MESSAGE);
             return;
         }
-        try {
-            ExcelData data = excelReader.read(selectedFile);
-            if (data.getItems().isEmpty()) {
-                JOptionPane.showMessageDialog(this, "No valid rows found in the Excel file.", "No data",
+        int maxItems = 0;
+        String maxItemsText = maxItemsField.getText().trim();
+        if (!maxItemsText.isEmpty()) {
+            try {
+                maxItems = Integer.parseInt(maxItemsText);
+            } catch (NumberFormatException ex) {
+                maxItems = -1;
+            }
+            if (maxItems < 1) {
+                JOptionPane.showMessageDialog(this, "Max items must be a positive number.", "Invalid max items",
                         JOptionPane.WARNING_MESSAGE);
                 return;
             }
+        }
+        File outputFile = xmlGenerator.buildOutputFile(selectedFile.getParentFile());
+        String name = outputFile.getName();
+        File indexFile = new File(outputFile.getParentFile(),
+                name.substring(0, name.length() - ".xml".length()) + XmlGenerator.INDEX_SUFFIX);
+        File existing = outputFile.exists() ? outputFile : maxItems > 0 && indexFile.exists() ? indexFile : null;
+        if (existing != null) {
+            int choice = JOptionPane.showConfirmDialog(this,
+                    "File already exists:\n" + existing.getName() + "\nOverwrite?",
+                    "Confirm overwrite", JOptionPane.YES_NO_OPTION);
+            if (choice != JOptionPane.YES_OPTION) {
+                return;
+            }
+        }
+
+        worker = new GenerateWorker(selectedFile, lrn, maxItems, outputFile, indexFile);
+        setRunning(true);
+        statusLabel.setText("Reading " + selectedFile.getName() + "...");
+        worker.execute();
+    }
+
+    private void handleValidate() {
+        if (selectedFile == null || !selectedFile.isFile()) {
+            JOptionPane.showMessageDialog(this, "Please choose a valid Excel file.", "Missing file",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        validateWorker = new ValidateWorker(selectedFile);
+        setRunning(true);
+        statusLabel.setText("Validating " + selectedFile.getName() + "...");
+        validateWorker.execute();
+    }
+
+    private void setRunning(boolean running) {
+        generateButton.setEnabled(!running && selectedFile != null && !lrnField.getText().trim().isEmpty());
+        validateButton.setEnabled(!running && selectedFile != null);
+        browseButton.setEnabled(!running);
+        lrnField.setEnabled(!running);
+        maxItemsField.setEnabled(!running);
+        cancelButton.setEnabled(running);
+        progressBar.setIndeterminate(running);
+        progressBar.setValue(0);
+    }
+
+    private void showCodeIssues(List<CodeIssue> issues) {
+        if (issues.isEmpty()) {
+            return;
+        }
+        StringBuilder message = new StringBuilder(issues.size() + " HS codes to check:\n");
+        for (int i = 0; i < issues.size() && i < MAX_LISTED_ISSUES; i++) {
+            message.append(issues.get(i)).append('\n');
+        }
+        if (issues.size() > MAX_LISTED_ISSUES) {
+            message.append("... and ").append(issues.size() - MAX_LISTED_ISSUES).append(" more");
+        }
+        JOptionPane.showMessageDialog(this, message.toString(), "HS codes", JOptionPane.WARNING_MESSAGE);
+    }
+
+    private void showSchemaIssues(SchemaValidationException ex) {
+        statusLabel.setText("Error: XML does not match the schema");
+        StringBuilder message = new StringBuilder(ex.getIssueCount() + " errors against the CC015C schema:\n");
+        List<SchemaIssue> issues = ex.getIssues();
+        for (int i = 0; i < issues.size() && i < MAX_LISTED_ISSUES; i++) {
+            message.append(issues.get(i)).append('\n');
+        }
+        if (ex.getIssueCount() > MAX_LISTED_ISSUES) {
+            message.append("... and ").append(ex.getIssueCount() - Math.min(issues.size(), MAX_LISTED_ISSUES))
+                    .append(" more");
+        }
+        JOptionPane.showMessageDialog(this, message.toString(), "Schema", JOptionPane.ERROR_MESSAGE);
+    }
+
+    private void showValidationReport(File sourceFile, ValidationReport report) {
+        if (report.isClean()) {
+            statusLabel.setText("No problems in " + report.getItemCount() + " items");
+            JOptionPane.showMessageDialog(this, "No problems found in " + report.getItemCount() + " items.",
+                    "Validation", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        List<RowIssue> issues = report.getIssues();
+        statusLabel.setText(issues.size() + " problems in " + report.getItemCount() + " items");
+        StringBuilder text = new StringBuilder();
+        for (RowIssue issue : issues) {
+            text.append(issue).append('\n');
+        }
+        JTextArea area = new JTextArea(text.toString(), Math.min(issues.size(), 20), 70);
+        area.setEditable(false);
+        area.setCaretPosition(0);
+        JPanel message = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(0, 0, 8, 0);
+        message.add(new JLabel(issues.size() + " problems in " + report.getItemCount() + " items:"), gbc);
+        message.add(new JScrollPane(area), gbc);
+        Object[] options = {"Save CSV...", "Close"};
+        int choice = JOptionPane.showOptionDialog(this, message, "Validation", JOptionPane.DEFAULT_OPTION,
+                JOptionPane.WARNING_MESSAGE, null, options, options[1]);
+        if (choice == 0) {
+            saveValidationReport(sourceFile, report);
+        }
+    }
+
+    private void saveValidationReport(File sourceFile, ValidationReport report) {
+        String name = sourceFile.getName();
+        int dot = name.lastIndexOf('.');
+        JFileChooser chooser = new JFileChooser(sourceFile.getParentFile());
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV files (*.csv)", "csv"));
+        chooser.setSelectedFile(new File(sourceFile.getParentFile(),
+                (dot > 0 ? name.substring(0, dot) : name) + "-validation.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File csvFile = chooser.getSelectedFile();
+        try (Writer writer = Files.newBufferedWriter(csvFile.toPath(), StandardCharsets.UTF_8)) {
+            report.writeCsv(writer);
+            statusLabel.setText("Report saved: " + csvFile.getAbsolutePath());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Unable to save the report:\n" + ex.getMessage(), "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private static final class Progress {
+        private final boolean writing;
+        private final int count;
+
+        private Progress(boolean writing, int count) {
+            this.writing = writing;
+            this.count = count;
+        }
+    }
 
-            File outputFile = xmlGenerator.buildOutputFile(selectedFile.getParentFile());
-            if (outputFile.exists()) {
-                int choice = JOptionPane.showConfirmDialog(this,
-                        "File already exists:\n" + outputFile.getName() + "\nOverwrite?",
-                        "Confirm overwrite", JOptionPane.YES_NO_OPTION);
-                if (choice != JOptionPane.YES_OPTION) {
+    /**
+     * Reads and generates off the event dispatch thread. Cancellation is cooperative: the reader and the
+     * generator check {@link #cancelRequested} on every row, stop with a CancellationException and the partial
+     * output is deleted before {@link #done()} runs.
+     */
+    private final class GenerateWorker extends SwingWorker<List<DeclarationPart>, Progress> {
+        private final File sourceFile;
+        private final String lrn;
+        private final int maxItems;
+        private final File outputFile;
+        private final File indexFile;
+        private volatile boolean cancelRequested;
+        private volatile int itemCount;
+        private ExcelData data;
+        private File createdFile;
+
+        private final ProgressListener listener = new ProgressListener() {
+            @Override
+            public void rowsRead(int rows) {
+                if (rows % PROGRESS_STEP == 0) {
+                    publish(new Progress(false, rows));
+                }
+            }
+
+            @Override
+            public void itemsWritten(int items) {
+                if (items % PROGRESS_STEP == 0 || items == itemCount) {
+                    publish(new Progress(true, items));
+                }
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelRequested;
+            }
+        };
+
+        private GenerateWorker(File sourceFile, String lrn, int maxItems, File outputFile, File indexFile) {
+            this.sourceFile = sourceFile;
+            this.lrn = lrn;
+            this.maxItems = maxItems;
+            this.outputFile = outputFile;
+            this.indexFile = indexFile;
+        }
+
+        private void requestCancel() {
+            cancelRequested = true;
+        }
+
+        @Override
+        protected List<DeclarationPart> doInBackground() throws Exception {
+            try (Run run = Metrics.run(sourceFile.getName())) {
+                try {
+                    return convert();
+                } catch (Exception ex) {
+                    run.failed(ex instanceof CancellationException ? "cancelled" : String.valueOf(ex.getMessage()));
+                    throw ex;
+                }
+            }
+        }
+
+        private List<DeclarationPart> convert() throws Exception {
+            data = excelReader.read(sourceFile, listener);
+            itemCount = data.getItems().size();
+            if (itemCount == 0) {
+                return null;
+            }
+            List<String> awbs = new ArrayList<>();
+            if (awbIndex != null) {
+                for (Item item : data.getItems()) {
+                    awbs.add(item.getAwb());
+                }
+                confirmRedeclared(awbIndex.check(awbs, lrn));
+            }
+            publish(new Progress(true, 0));
+            List<DeclarationPart> parts = null;
+            if (maxItems > 0 && itemCount > maxItems) {
+                createdFile = indexFile;
+                parts = xmlGenerator.generateSplit(indexFile, lrn, data, maxItems, listener);
+            } else {
+                createdFile = outputFile;
+                try {
+                    xmlGenerator.generate(outputFile, lrn, data, listener);
+                } catch (Exception ex) {
+                    if (!outputFile.delete()) {
+                        outputFile.deleteOnExit();
+                    }
+                    throw ex;
+                }
+            }
+            if (awbIndex != null) {
+                awbIndex.record(awbs, lrn, createdFile);
+            }
+            return parts;
+        }
+
+        /**
+         * Fails, or asks the user whether to go on, when AWBs of the borderou were declared before under another
+         * LRN.
+         */
+        private void confirmRedeclared(List<AwbIndex.Declaration> redeclared) throws Exception {
+            if (redeclared.isEmpty()) {
+                return;
+            }
+            StringBuilder message = new StringBuilder(redeclared.size() + " AWBs were declared before:\n");
+            for (int i = 0; i < redeclared.size() && i < MAX_LISTED_ISSUES; i++) {
+                message.append(redeclared.get(i)).append('\n');
+            }
+            if (redeclared.size() > MAX_LISTED_ISSUES) {
+                message.append("... and ").append(redeclared.size() - MAX_LISTED_ISSUES).append(" more\n");
+            }
+            if (awbPolicy == AwbIndex.Policy.BLOCK) {
+                throw new IllegalStateException(message.toString().trim());
+            }
+            message.append("\nGenerate the declaration anyway?");
+            int[] choice = new int[1];
+            SwingUtilities.invokeAndWait(() -> choice[0] = JOptionPane.showConfirmDialog(GeneratorFrame.this,
+                    message.toString(), "AWBs already declared", JOptionPane.YES_NO_OPTION,
+                    JOptionPane.WARNING_MESSAGE));
+            if (choice[0] != JOptionPane.YES_OPTION) {
+                throw new CancellationException("AWB already declared.");
+            }
+        }
+
+        @Override
+        protected void process(List<Progress> chunks) {
+            if (cancelRequested) {
+                return;
+            }
+            Progress progress = chunks.get(chunks.size() - 1);
+            if (progress.writing) {
+                progressBar.setIndeterminate(false);
+                progressBar.setMaximum(itemCount);
+                progressBar.setValue(progress.count);
+                statusLabel.setText("Written " + progress.count + " / " + itemCount + " items");
+            } else {
+                statusLabel.setText("Read " + progress.count + " rows");
+            }
+        }
+
+        @Override
+        protected void done() {
+            worker = null;
+            setRunning(false);
+            List<DeclarationPart> parts;
+            try {
+                parts = get();
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof CancellationException) {
+                    statusLabel.setText("Cancelled");
+                    return;
+                }
+                if (cause instanceof SchemaValidationException) {
+                    showSchemaIssues((SchemaValidationException) cause);
                     return;
                 }
+                statusLabel.setText("Error: " + cause.getMessage());
+                JOptionPane.showMessageDialog(GeneratorFrame.this, cause.getMessage(), "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            if (itemCount == 0) {
+                statusLabel.setText(" ");
+                JOptionPane.showMessageDialog(GeneratorFrame.this, "No valid rows found in the Excel file.",
+                        "No data", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            progressBar.setValue(progressBar.getMaximum());
+            if (parts != null) {
+                statusLabel.setText("Created " + parts.size() + " declarations: " + createdFile.getAbsolutePath());
+                JOptionPane.showMessageDialog(GeneratorFrame.this, parts.size() + " XML files created, index:\n"
+                        + createdFile.getAbsolutePath(), "Success", JOptionPane.INFORMATION_MESSAGE);
+            } else {
+                statusLabel.setText("Created: " + createdFile.getAbsolutePath());
+                JOptionPane.showMessageDialog(GeneratorFrame.this, "XML created:\n" + createdFile.getAbsolutePath(),
+                        "Success", JOptionPane.INFORMATION_MESSAGE);
+            }
+            showCodeIssues(data.getCodeIssues());
+        }
+    }
+
+    /**
+     * Runs a validation pass off the event dispatch thread; cancelled the same way as {@link GenerateWorker}.
+     */
+    private final class ValidateWorker extends SwingWorker<ValidationReport, Integer> {
+        private final File sourceFile;
+        private volatile boolean cancelRequested;
+
+        private final ProgressListener listener = new ProgressListener() {
+            @Override
+            public void rowsRead(int rows) {
+                if (rows % PROGRESS_STEP == 0) {
+                    publish(rows);
+                }
             }
 
-            xmlGenerator.generate(outputFile, lrn, data);
-            statusLabel.setText("Created: " + outputFile.getAbsolutePath());
-            JOptionPane.showMessageDialog(this, "XML created:\n" + outputFile.getAbsolutePath(),
-                    "Success", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception ex) {
-            statusLabel.setText("Error: " + ex.getMessage());
-            JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            @Override
+            public boolean isCancelled() {
+                return cancelRequested;
+            }
+        };
+
+        private ValidateWorker(File sourceFile) {
+            this.sourceFile = sourceFile;
+        }
+
+        private void requestCancel() {
+            cancelRequested = true;
+        }
+
+        @Override
+        protected ValidationReport doInBackground() throws Exception {
+            return excelReader.validate(sourceFile, listener);
+        }
+
+        @Override
+        protected void process(List<Integer> chunks) {
+            if (!cancelRequested) {
+                statusLabel.setText("Checked " + chunks.get(chunks.size() - 1) + " items");
+            }
+        }
+
+        @Override
+        protected void done() {
+            validateWorker = null;
+            setRunning(false);
+            ValidationReport report;
+            try {
+                report = get();
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof CancellationException) {
+                    statusLabel.setText("Cancelled");
+                    return;
+                }
+                statusLabel.setText("Error: " + cause.getMessage());
+                JOptionPane.showMessageDialog(GeneratorFrame.this, cause.getMessage(), "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            showValidationReport(sourceFile, report);
         }
     }
 }
@@ -0,0 +1,249 @@
+package org.app.xml;
+
+import org.app.model.CharSlice;
+import org.app.model.ColumnarExcelData;
+import org.app.model.Item;
+import org.jdom2.Comment;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.Verifier;
+import org.jdom2.output.EscapeStrategy;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable, pre-serialized form of the CC015C template. The text around the items and a single
+ * ConsignmentItem are rendered once with slot markers; a generation only writes the static text and
+ * the slot values. Output is identical to pretty-printing the filled JDOM document.
+ */
+final class CompiledTemplate {
+    enum Slot {
+        LRN,
+        LIMIT_DATE,
+        GROSS_MASS,
+        GOODS_ITEM_NUMBER,
+        DESCRIPTION_OF_GOODS,
+        HARMONIZED_SYSTEM_SUB_HEADING_CODE,
+        ITEM_GROSS_MASS,
+        REFERENCE_NUMBER;
+
+        String marker() {
+            return "{{" + name() + "}}";
+        }
+    }
+
+    private static final String ITEMS_MARKER = "ConsignmentItems";
+    private static final Pattern SLOT_PATTERN = Pattern.compile("<([^\\s<>/]+)>\\{\\{([A-Z_]+)\\}\\}</\\1>");
+
+    private final Format format;
+    private final Fragment header;
+    private final Fragment itemFragment;
+    private final Fragment footer;
+    private final String itemSeparator;
+
+    private CompiledTemplate(Format format, Fragment header, Fragment itemFragment, Fragment footer,
+                             String itemSeparator) {
+        this.format = format;
+        this.header = header;
+        this.itemFragment = itemFragment;
+        this.footer = footer;
+        this.itemSeparator = itemSeparator;
+    }
+
+    /**
+     * Compiles a template whose slot elements already hold {@link Slot#marker()} values and whose
+     * HouseConsignment has had its sample items removed. The document is modified.
+     */
+    static CompiledTemplate compile(Document document, Element houseConsignment, Element itemTemplate) {
+        if (!ItemFragmentWriter.supports(itemTemplate)) {
+            throw new IllegalStateException("Template ConsignmentItem contains content that cannot be precompiled.");
+        }
+        Format format = Format.getPrettyFormat();
+        int itemDepth = 0;
+        for (Element parent = houseConsignment; parent.getParentElement() != null; parent = parent.getParentElement()) {
+            itemDepth++;
+        }
+        itemDepth++;
+
+        houseConsignment.addContent(new Comment(ITEMS_MARKER));
+        String skeleton = new XMLOutputter(format).outputString(document);
+        String marker = "<!--" + ITEMS_MARKER + "-->";
+        int split = skeleton.indexOf(marker);
+        if (split < 0) {
+            throw new IllegalStateException("Unable to locate ConsignmentItem position in template.");
+        }
+
+        StringWriter itemText = new StringWriter();
+        StringWriter separator = new StringWriter();
+        try {
+            new ItemFragmentWriter(itemText, format).write(itemTemplate, itemDepth);
+            new ItemFragmentWriter(separator, format).newLine(itemDepth);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+
+        return new CompiledTemplate(format,
+                Fragment.parse(skeleton.substring(0, split)),
+                Fragment.parse(itemText.toString()),
+                Fragment.parse(skeleton.substring(split + marker.length())),
+                separator.toString());
+    }
+
+    void writeHeader(Writer writer, String lrn, String limitDate, String grossMass) throws IOException {
+        CharSequence[] values = new CharSequence[Slot.values().length];
+        values[Slot.LRN.ordinal()] = lrn;
+        values[Slot.LIMIT_DATE.ordinal()] = limitDate;
+        values[Slot.GROSS_MASS.ordinal()] = grossMass;
+        header.write(writer, values, format);
+    }
+
+    /**
+     * Writes one ConsignmentItem; {@code index} is the 1-based goods item number.
+     */
+    void writeItem(Writer writer, int index, Item item, ItemValues values) throws IOException {
+        CharSequence[] slots = values.slots;
+        slots[Slot.DESCRIPTION_OF_GOODS.ordinal()] = item.getDescription();
+        slots[Slot.HARMONIZED_SYSTEM_SUB_HEADING_CODE.ordinal()] = item.getCode();
+        slots[Slot.ITEM_GROSS_MASS.ordinal()] = XmlGenerator.formatDecimal(item.getKgs());
+        slots[Slot.REFERENCE_NUMBER.ordinal()] = item.getAwb();
+        writeItem(writer, index, values);
+    }
+
+    /**
+     * Writes row {@code row} of columnar data as ConsignmentItem {@code index} without creating an {@link Item}
+     * or per-row Strings.
+     */
+    void writeItem(Writer writer, int index, ColumnarExcelData data, int row, ItemValues values) throws IOException {
+        CharSequence[] slots = values.slots;
+        slots[Slot.DESCRIPTION_OF_GOODS.ordinal()] = data.getDescription(row);
+        slots[Slot.HARMONIZED_SYSTEM_SUB_HEADING_CODE.ordinal()] = data.getCode(row);
+        slots[Slot.ITEM_GROSS_MASS.ordinal()] = data.formatKgs(row, values.mass);
+        slots[Slot.REFERENCE_NUMBER.ordinal()] = data.getAwb(row, values.awb);
+        writeItem(writer, index, values);
+    }
+
+    private void writeItem(Writer writer, int index, ItemValues values) throws IOException {
+        if (index > 1) {
+            writer.write(itemSeparator);
+        }
+        values.slots[Slot.GOODS_ITEM_NUMBER.ordinal()] = values.number.setInt(index);
+        itemFragment.write(writer, values.slots, format);
+    }
+
+    ItemValues newItemValues() {
+        return new ItemValues();
+    }
+
+    void writeFooter(Writer writer) throws IOException {
+        footer.write(writer, new CharSequence[Slot.values().length], format);
+    }
+
+    /**
+     * Per-writer scratch state for item slots, reused for every item of a generation.
+     */
+    static final class ItemValues {
+        private final CharSequence[] slots = new CharSequence[Slot.values().length];
+        private final CharSlice number = new CharSlice();
+        private final CharSlice mass = new CharSlice();
+        private final CharSlice awb = new CharSlice();
+    }
+
+    private static final class Fragment {
+        private final String[] texts;
+        private final Slot[] slots;
+        private final String[] names;
+
+        private Fragment(String[] texts, Slot[] slots, String[] names) {
+            this.texts = texts;
+            this.slots = slots;
+            this.names = names;
+        }
+
+        private static Fragment parse(String text) {
+            List<String> texts = new ArrayList<>();
+            List<Slot> slots = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            Matcher matcher = SLOT_PATTERN.matcher(text);
+            int position = 0;
+            while (matcher.find()) {
+                Slot slot;
+                try {
+                    slot = Slot.valueOf(matcher.group(2));
+                } catch (IllegalArgumentException ex) {
+                    continue;
+                }
+                texts.add(text.substring(position, matcher.start()));
+                slots.add(slot);
+                names.add(matcher.group(1));
+                position = matcher.end();
+            }
+            texts.add(text.substring(position));
+            for (String part : texts) {
+                for (Slot slot : Slot.values()) {
+                    if (part.contains(slot.marker())) {
+                        throw new IllegalStateException("Template slot " + slot + " is not a plain element value.");
+                    }
+                }
+            }
+            return new Fragment(texts.toArray(new String[0]), slots.toArray(new Slot[0]),
+                    names.toArray(new String[0]));
+        }
+
+        private void write(Writer writer, CharSequence[] values, Format format) throws IOException {
+            for (int i = 0; i < slots.length; i++) {
+                writer.write(texts[i]);
+                CharSequence value = values[slots[i].ordinal()];
+                int start = 0;
+                int end = value == null ? 0 : value.length();
+                while (start < end && Verifier.isXMLWhitespace(value.charAt(start))) {
+                    start++;
+                }
+                while (end > start && Verifier.isXMLWhitespace(value.charAt(end - 1))) {
+                    end--;
+                }
+                writer.write('<');
+                writer.write(names[i]);
+                if (start == end) {
+                    writer.write(" />");
+                    continue;
+                }
+                writer.write('>');
+                writeEscaped(writer, value, start, end, format);
+                writer.write("</");
+                writer.write(names[i]);
+                writer.write('>');
+            }
+            writer.write(texts[slots.length]);
+        }
+
+        /**
+         * Writes plain values straight through; anything JDOM would escape goes through
+         * {@link Format#escapeText} so the output stays identical.
+         */
+        private static void writeEscaped(Writer writer, CharSequence value, int start, int end, Format format)
+                throws IOException {
+            EscapeStrategy strategy = format.getEscapeStrategy();
+            for (int i = start; i < end; i++) {
+                char c = value.charAt(i);
+                if (c == '<' || c == '>' || c == '&' || c == '\r' || c == '\n' || strategy.shouldEscape(c)) {
+                    writer.write(Format.escapeText(strategy, format.getLineSeparator(),
+                            value.subSequence(start, end).toString()));
+                    return;
+                }
+            }
+            if (value instanceof CharSlice) {
+                ((CharSlice) value).write(writer, start, end);
+            } else {
+                writer.write(value.toString(), start, end - start);
+            }
+        }
+    }
+}
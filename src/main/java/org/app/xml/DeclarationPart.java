@@ -0,0 +1,49 @@
+package org.app.xml;
+
+import java.io.File;
+import java.math.BigDecimal;
+
+/**
+ * One declaration of a split manifest: its LRN, the 1-based range of borderou items it carries and its mass.
+ */
+public class DeclarationPart {
+    private final int number;
+    private final String lrn;
+    private final int firstItem;
+    private final int lastItem;
+    private final BigDecimal grossMass;
+    private final File file;
+
+    public DeclarationPart(int number, String lrn, int firstItem, int lastItem, BigDecimal grossMass, File file) {
+        this.number = number;
+        this.lrn = lrn;
+        this.firstItem = firstItem;
+        this.lastItem = lastItem;
+        this.grossMass = grossMass;
+        this.file = file;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public String getLrn() {
+        return lrn;
+    }
+
+    public int getFirstItem() {
+        return firstItem;
+    }
+
+    public int getLastItem() {
+        return lastItem;
+    }
+
+    public BigDecimal getGrossMass() {
+        return grossMass;
+    }
+
+    public File getFile() {
+        return file;
+    }
+}
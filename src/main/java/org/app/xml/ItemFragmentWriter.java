@@ -0,0 +1,95 @@
+package org.app.xml;
+
+import org.jdom2.Attribute;
+import org.jdom2.Content;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jdom2.Text;
+import org.jdom2.output.Format;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes a single element subtree exactly as {@link org.jdom2.output.XMLOutputter} does with
+ * {@link Format#getPrettyFormat()}, starting at a given nesting depth. Only plain elements and text
+ * are supported; {@link #supports(Element)} tells whether a template element qualifies.
+ */
+final class ItemFragmentWriter {
+    private final Writer writer;
+    private final Format format;
+
+    ItemFragmentWriter(Writer writer, Format format) {
+        this.writer = writer;
+        this.format = format;
+    }
+
+    static boolean supports(Element element) {
+        if (element.getNamespace() != Namespace.NO_NAMESPACE || !element.getAdditionalNamespaces().isEmpty()) {
+            return false;
+        }
+        for (Attribute attribute : element.getAttributes()) {
+            if (attribute.getNamespace() != Namespace.NO_NAMESPACE) {
+                return false;
+            }
+        }
+        boolean hasElements = false;
+        boolean hasText = false;
+        for (Content content : element.getContent()) {
+            if (content instanceof Element) {
+                if (!supports((Element) content)) {
+                    return false;
+                }
+                hasElements = true;
+            } else if (content.getCType() == Content.CType.Text) {
+                if (!Format.trimBoth(((Text) content).getText()).isEmpty()) {
+                    hasText = true;
+                }
+            } else {
+                return false;
+            }
+        }
+        return !(hasElements && hasText);
+    }
+
+    void write(Element element, int depth) throws IOException {
+        writer.write('<');
+        writer.write(element.getName());
+        for (Attribute attribute : element.getAttributes()) {
+            writer.write(' ');
+            writer.write(attribute.getName());
+            writer.write("=\"");
+            writer.write(Format.escapeAttribute(format.getEscapeStrategy(), attribute.getValue()));
+            writer.write('"');
+        }
+
+        List<Element> children = element.getChildren();
+        if (children.isEmpty()) {
+            String text = Format.trimBoth(element.getText());
+            if (text.isEmpty()) {
+                writer.write(" />");
+                return;
+            }
+            writer.write('>');
+            writer.write(Format.escapeText(format.getEscapeStrategy(), format.getLineSeparator(), text));
+        } else {
+            writer.write('>');
+            for (Element child : children) {
+                newLine(depth + 1);
+                write(child, depth + 1);
+            }
+            newLine(depth);
+        }
+        writer.write("</");
+        writer.write(element.getName());
+        writer.write('>');
+    }
+
+    void newLine(int depth) throws IOException {
+        writer.write(format.getLineSeparator());
+        for (int i = 0; i < depth; i++) {
+            writer.write(format.getIndent());
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package org.app.xml;
+
+import org.app.model.ColumnarExcelData;
+import org.app.model.ExcelData;
+import org.app.model.Item;
+import org.app.model.ProgressListener;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Writes a compiled declaration with its items encoded in parallel. Runs of {@link #CHUNK_ITEMS} consecutive items
+ * are encoded to UTF-8 on a fork-join pool, each into a byte buffer that is reused for later chunks, and a wave of
+ * chunks is written in order with one gathering write while the next wave is being encoded. Every item writes its
+ * own separator from its goods item number, so the chunks concatenate to exactly what the sequential writer emits.
+ */
+final class ParallelItemWriter {
+    /** Items per chunk; also the smallest declaration worth splitting. */
+    static final int CHUNK_ITEMS = 1024;
+    private static final int CHUNK_BUFFER_SIZE = 8 * 1024;
+
+    private final CompiledTemplate template;
+    private final ForkJoinPool pool;
+    private final int chunksPerWave;
+
+    ParallelItemWriter(CompiledTemplate template, ForkJoinPool pool) {
+        this.template = template;
+        this.pool = pool;
+        this.chunksPerWave = pool.getParallelism();
+    }
+
+    void write(FileChannel channel, String lrn, String limitDate, String grossMass, ExcelData data,
+               ProgressListener listener) throws Exception {
+        List<Item> items = data.getItems();
+        if (!(data instanceof ColumnarExcelData) && !(items instanceof RandomAccess)) {
+            items = new ArrayList<>(items);
+        }
+        int itemCount = items.size();
+        int waveItems = chunksPerWave * CHUNK_ITEMS;
+        Chunk[][] banks = {newBank(), newBank()};
+        Chunk header = new Chunk(template);
+        template.writeHeader(header.writer, lrn, limitDate, grossMass);
+        header.writer.flush();
+
+        ForkJoinTask<?> encoding = pool.submit(new Wave(banks[0], data, items, 0, itemCount, listener));
+        try {
+            for (int from = 0, bank = 0; encoding != null; from += waveItems, bank ^= 1) {
+                try {
+                    encoding.get();
+                } catch (ExecutionException ex) {
+                    encoding = null;
+                    Throwable cause = ex.getCause() instanceof UncheckedIOException ? ex.getCause().getCause()
+                            : ex.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : ex;
+                }
+                listener.checkCancelled();
+                int next = from + waveItems;
+                encoding = next < itemCount
+                        ? pool.submit(new Wave(banks[bank ^ 1], data, items, next, itemCount, listener)) : null;
+
+                List<ByteBuffer> buffers = new ArrayList<>(chunksPerWave + 2);
+                if (from == 0) {
+                    buffers.add(header.buffer());
+                }
+                for (Chunk chunk : banks[bank]) {
+                    if (chunk.bytes.size() > 0) {
+                        buffers.add(chunk.buffer());
+                    }
+                }
+                if (encoding == null) {
+                    Chunk footer = new Chunk(template);
+                    template.writeFooter(footer.writer);
+                    footer.writer.flush();
+                    buffers.add(footer.buffer());
+                }
+                write(channel, buffers.toArray(new ByteBuffer[0]));
+                listener.itemsWritten(Math.min(next, itemCount));
+            }
+        } finally {
+            if (encoding != null) {
+                // the wave still writes into a bank; let it finish before the buffers go away
+                encoding.quietlyJoin();
+            }
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer[] buffers) throws IOException {
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+    }
+
+    private Chunk[] newBank() {
+        Chunk[] bank = new Chunk[chunksPerWave];
+        for (int i = 0; i < bank.length; i++) {
+            bank[i] = new Chunk(template);
+        }
+        return bank;
+    }
+
+    /**
+     * Encodes the items of one wave, one chunk per task.
+     */
+    private final class Wave extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Chunk[] bank;
+        private final ExcelData data;
+        private final List<Item> items;
+        private final int from;
+        private final int itemCount;
+        private final ProgressListener listener;
+
+        private Wave(Chunk[] bank, ExcelData data, List<Item> items, int from, int itemCount,
+                     ProgressListener listener) {
+            this.bank = bank;
+            this.data = data;
+            this.items = items;
+            this.from = from;
+            this.itemCount = itemCount;
+            this.listener = listener;
+        }
+
+        @Override
+        protected void compute() {
+            List<RecursiveAction> tasks = new ArrayList<>(bank.length);
+            for (int i = 0; i < bank.length; i++) {
+                Chunk chunk = bank[i];
+                int start = from + i * CHUNK_ITEMS;
+                int end = Math.min(itemCount, start + CHUNK_ITEMS);
+                chunk.bytes.reset();
+                if (start < end && !listener.isCancelled()) {
+                    tasks.add(new RecursiveAction() {
+                        @Override
+                        protected void compute() {
+                            chunk.encode(data, items, start, end);
+                        }
+                    });
+                }
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    /**
+     * A reusable UTF-8 buffer with its own writer and slot scratch state.
+     */
+    private static final class Chunk {
+        private final CompiledTemplate template;
+        private final Bytes bytes = new Bytes();
+        private final Writer writer = new BufferedWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8),
+                CHUNK_BUFFER_SIZE);
+        private final CompiledTemplate.ItemValues values;
+
+        private Chunk(CompiledTemplate template) {
+            this.template = template;
+            this.values = template.newItemValues();
+        }
+
+        private void encode(ExcelData data, List<Item> items, int start, int end) {
+            try {
+                if (data instanceof ColumnarExcelData) {
+                    ColumnarExcelData columns = (ColumnarExcelData) data;
+                    for (int row = start; row < end; row++) {
+                        template.writeItem(writer, row + 1, columns, row, values);
+                    }
+                } else {
+                    for (int row = start; row < end; row++) {
+                        template.writeItem(writer, row + 1, items.get(row), values);
+                    }
+                }
+                writer.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private ByteBuffer buffer() {
+            return ByteBuffer.wrap(bytes.array(), 0, bytes.size());
+        }
+    }
+
+    private static final class Bytes extends ByteArrayOutputStream {
+        private Bytes() {
+            super(64 * 1024);
+        }
+
+        private byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.app.xml;
+
+import java.io.File;
+
+/**
+ * A schema violation found while writing a declaration, located by the consignment item it occurred in. For a
+ * single declaration the goodsItemNumber is the item's position in the borderou; for a part of a split declaration
+ * it counts from 1 within the part, and {@link #getItemNumber()} gives the position in the borderou.
+ */
+public class SchemaIssue {
+    private final int goodsItemNumber;
+    private final int itemNumber;
+    private final File file;
+    private final int lineNumber;
+    private final String message;
+
+    /**
+     * @param goodsItemNumber goodsItemNumber of the enclosing consignment item, 0 outside any item
+     * @param lineNumber      1-based line in the generated file, or -1 when unknown
+     */
+    public SchemaIssue(int goodsItemNumber, int lineNumber, String message) {
+        this(goodsItemNumber, goodsItemNumber, null, lineNumber, message);
+    }
+
+    private SchemaIssue(int goodsItemNumber, int itemNumber, File file, int lineNumber, String message) {
+        this.goodsItemNumber = goodsItemNumber;
+        this.itemNumber = itemNumber;
+        this.file = file;
+        this.lineNumber = lineNumber;
+        this.message = message;
+    }
+
+    /**
+     * Returns this issue as found in the part file {@code partFile}, whose first item is item {@code firstItem}
+     * of the borderou.
+     */
+    SchemaIssue inPart(int firstItem, File partFile) {
+        return new SchemaIssue(goodsItemNumber, goodsItemNumber > 0 ? goodsItemNumber + firstItem - 1 : 0,
+                partFile, lineNumber, message);
+    }
+
+    /**
+     * The goodsItemNumber in the declaration file the issue was found in, 0 outside any item.
+     */
+    public int getGoodsItemNumber() {
+        return goodsItemNumber;
+    }
+
+    /**
+     * The 1-based position of the item in the borderou, 0 outside any item.
+     */
+    public int getItemNumber() {
+        return itemNumber;
+    }
+
+    /**
+     * The part file the issue was found in, or {@code null} for a declaration that was not split.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        String location = lineNumber > 0 ? "line " + lineNumber : "";
+        if (file != null) {
+            location = location.isEmpty() ? file.getName() : file.getName() + ", " + location;
+        }
+        return (itemNumber > 0 ? "Item " + itemNumber : "Declaration")
+                + (location.isEmpty() ? "" : " (" + location + ")") + ": " + message;
+    }
+}
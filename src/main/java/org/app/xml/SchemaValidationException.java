@@ -0,0 +1,46 @@
+package org.app.xml;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown once a declaration has been written when it does not validate against the configured schema.
+ */
+public class SchemaValidationException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<SchemaIssue> issues;
+    private final int issueCount;
+
+    /**
+     * @param issues     the first issues found, at most {@link StreamingValidator#MAX_ISSUES}
+     * @param issueCount the number of issues found in total
+     */
+    SchemaValidationException(List<SchemaIssue> issues, int issueCount) {
+        super("Generated XML does not match the schema: " + issueCount + " error(s), first: " + issues.get(0));
+        this.issues = Collections.unmodifiableList(issues);
+        this.issueCount = issueCount;
+    }
+
+    /**
+     * Returns the same failure with its issues located in the part file {@code partFile}, whose first item is
+     * item {@code firstItem} of the borderou.
+     */
+    SchemaValidationException inPart(int firstItem, File partFile) {
+        List<SchemaIssue> located = new ArrayList<>(issues.size());
+        for (SchemaIssue issue : issues) {
+            located.add(issue.inPart(firstItem, partFile));
+        }
+        return new SchemaValidationException(located, issueCount);
+    }
+
+    public List<SchemaIssue> getIssues() {
+        return issues;
+    }
+
+    public int getIssueCount() {
+        return issueCount;
+    }
+}
@@ -0,0 +1,340 @@
+package org.app.xml;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.ValidatorHandler;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Validates a declaration against a schema while it is written: {@link #writer()} passes everything on to the
+ * output and hands it in chunks to a thread that feeds it through a SAX parser into a {@link ValidatorHandler},
+ * so the file is never parsed a second time. The queue between the two is bounded, so a slow validator slows the
+ * writer down instead of buffering the declaration.
+ */
+final class StreamingValidator implements AutoCloseable {
+    static final int MAX_ISSUES = 100;
+
+    private static final Map<String, Schema> SCHEMAS = new ConcurrentHashMap<>();
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final char[] END = new char[0];
+    private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+
+    private final BlockingQueue<char[]> chunks = new ArrayBlockingQueue<>(8);
+    private final List<SchemaIssue> issues = new ArrayList<>();
+    private final Thread thread;
+    private final Writer writer;
+    private int issueCount;
+    private Exception failure;
+    private boolean ended;
+
+    private StreamingValidator(Schema schema, Writer output) {
+        writer = new TeeWriter(output);
+        thread = new Thread(() -> validate(schema), "schema-validator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts validating what is written through {@link #writer()}; returns {@code null} when {@code schema} is
+     * {@code null}, which try-with-resources accepts.
+     */
+    static StreamingValidator open(Schema schema, Writer output) {
+        return schema == null ? null : new StreamingValidator(schema, output);
+    }
+
+    /**
+     * Returns the compiled schema of {@code xsd} and the files it includes or imports, compiling it only on first
+     * use per process. Compiled schemas are immutable and shared by all threads.
+     */
+    static Schema schema(File xsd) throws SAXException {
+        String key = xsd.getAbsolutePath();
+        Schema schema = SCHEMAS.get(key);
+        if (schema == null) {
+            if (!xsd.isFile()) {
+                throw new IllegalArgumentException("Schema file not found: " + xsd);
+            }
+            schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(xsd);
+            Schema existing = SCHEMAS.putIfAbsent(key, schema);
+            if (existing != null) {
+                schema = existing;
+            }
+        }
+        return schema;
+    }
+
+    Writer writer() {
+        return writer;
+    }
+
+    /**
+     * Waits for the validator to catch up with everything written and throws a
+     * {@link SchemaValidationException} when it found any issue.
+     */
+    void finish() throws Exception {
+        writer.flush();
+        ended = true;
+        ((TeeWriter) writer).pushChunk();
+        chunks.put(END);
+        thread.join();
+        if (failure != null) {
+            throw failure;
+        }
+        if (!issues.isEmpty()) {
+            throw new SchemaValidationException(issues, issueCount);
+        }
+    }
+
+    /**
+     * Stops validating without reporting, e.g. when writing failed or was cancelled. Never throws, so the failure
+     * that ended the writing is the one reported; an interrupt is kept for the caller.
+     */
+    @Override
+    public void close() {
+        if (!ended) {
+            ended = true;
+            chunks.clear();
+            // only the writing thread adds chunks, so there is room after clearing
+            chunks.offer(END);
+            try {
+                thread.join(CLOSE_TIMEOUT_MILLIS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void validate(Schema schema) {
+        ChunkReader reader = new ChunkReader();
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            XMLReader xmlReader = factory.newSAXParser().getXMLReader();
+            ValidatorHandler validatorHandler = schema.newValidatorHandler();
+            ItemTracker tracker = new ItemTracker();
+            tracker.setContentHandler(validatorHandler);
+            validatorHandler.setErrorHandler(tracker);
+            xmlReader.setContentHandler(tracker);
+            xmlReader.setErrorHandler(tracker);
+            xmlReader.parse(new InputSource(reader));
+        } catch (SAXParseException ex) {
+            // already recorded by the tracker
+        } catch (Exception ex) {
+            failure = ex;
+        } finally {
+            // the writer blocks on a full queue, so keep taking chunks until it is done
+            reader.drain();
+        }
+    }
+
+    private void report(int goodsItemNumber, SAXParseException ex) {
+        issueCount++;
+        if (issues.size() < MAX_ISSUES) {
+            issues.add(new SchemaIssue(goodsItemNumber, ex.getLineNumber(), ex.getMessage()));
+        }
+    }
+
+    /**
+     * Sits between parser and validator to know which consignment item an error belongs to.
+     */
+    private final class ItemTracker extends XMLFilterImpl implements ErrorHandler {
+        private final StringBuilder numberText = new StringBuilder();
+        private int items;
+        private int goodsItemNumber;
+        private boolean inItem;
+        private boolean inNumber;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+            if ("ConsignmentItem".equals(localName)) {
+                inItem = true;
+                goodsItemNumber = ++items;
+            } else if (inItem && "goodsItemNumber".equals(localName)) {
+                inNumber = true;
+                numberText.setLength(0);
+            }
+            super.startElement(uri, localName, qName, atts);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            if (inNumber) {
+                numberText.append(ch, start, length);
+            }
+            super.characters(ch, start, length);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (inNumber) {
+                inNumber = false;
+                try {
+                    goodsItemNumber = Integer.parseInt(numberText.toString().trim());
+                } catch (NumberFormatException ex) {
+                    // keep the position; the validator reports the bad number itself
+                }
+            }
+            super.endElement(uri, localName, qName);
+            if ("ConsignmentItem".equals(localName)) {
+                inItem = false;
+                goodsItemNumber = 0;
+            }
+        }
+
+        @Override
+        public void warning(SAXParseException exception) {
+        }
+
+        @Override
+        public void error(SAXParseException exception) {
+            report(goodsItemNumber, exception);
+        }
+
+        @Override
+        public void fatalError(SAXParseException exception) throws SAXException {
+            report(goodsItemNumber, exception);
+            throw exception;
+        }
+    }
+
+    private final class TeeWriter extends Writer {
+        private final Writer output;
+        private char[] chunk = new char[CHUNK_SIZE];
+        private int length;
+
+        private TeeWriter(Writer output) {
+            this.output = output;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            output.write(c);
+            if (length == chunk.length) {
+                pushChunk();
+            }
+            chunk[length++] = (char) c;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            output.write(cbuf, off, len);
+            while (len > 0) {
+                if (length == chunk.length) {
+                    pushChunk();
+                }
+                int count = Math.min(len, chunk.length - length);
+                System.arraycopy(cbuf, off, chunk, length, count);
+                length += count;
+                off += count;
+                len -= count;
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            output.write(str, off, len);
+            while (len > 0) {
+                if (length == chunk.length) {
+                    pushChunk();
+                }
+                int count = Math.min(len, chunk.length - length);
+                str.getChars(off, off + count, chunk, length);
+                length += count;
+                off += count;
+                len -= count;
+            }
+        }
+
+        private void pushChunk() throws InterruptedIOException {
+            if (length == 0) {
+                return;
+            }
+            char[] full = length == chunk.length ? chunk : Arrays.copyOf(chunk, length);
+            try {
+                chunks.put(full);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while validating.");
+            }
+            chunk = new char[CHUNK_SIZE];
+            length = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            output.flush();
+        }
+
+        @Override
+        public void close() {
+            // the output is owned and closed by the caller
+        }
+    }
+
+    private final class ChunkReader extends Reader {
+        private char[] chunk = new char[0];
+        private int position;
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (position == chunk.length) {
+                if (chunk == END) {
+                    return -1;
+                }
+                chunk = take();
+                position = 0;
+            }
+            int count = Math.min(len, chunk.length - position);
+            System.arraycopy(chunk, position, cbuf, off, count);
+            position += count;
+            return count;
+        }
+
+        private char[] take() throws InterruptedIOException {
+            try {
+                return chunks.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while validating.");
+            }
+        }
+
+        void drain() {
+            try {
+                while (chunk != END) {
+                    chunk = chunks.take();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void close() {
+            // parsers close their input when done; the chunks are drained separately
+        }
+    }
+}
@@ -1,45 +1,480 @@
 package org.app.xml;
 
+import com.opencsv.CSVWriter;
+import org.app.metrics.Metrics;
+import org.app.metrics.Run;
+import org.app.metrics.Stage;
+import org.app.model.ColumnarExcelData;
 import org.app.model.ExcelData;
 import org.app.model.Item;
+import org.app.model.ProgressListener;
+import org.app.xml.CompiledTemplate.Slot;
 import org.jdom2.Document;
 import org.jdom2.Element;
 import org.jdom2.input.SAXBuilder;
 import org.jdom2.output.Format;
 import org.jdom2.output.XMLOutputter;
+import org.xml.sax.SAXException;
 
+import javax.xml.validation.Schema;
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.StringReader;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class XmlGenerator {
+    /** Name start of every file this generator writes. */
+    public static final String OUTPUT_PREFIX = "T2-";
+    /** Name ending of the index file written next to the parts of a split declaration. */
+    public static final String INDEX_SUFFIX = "-index.csv";
     private static final String TEMPLATE_RESOURCE = "test/t2uk UPS 280 art.xml";
     private static final DateTimeFormatter OUTPUT_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmm");
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_LRN_LENGTH = 22;
+    private static final Map<String, CompiledTemplate> COMPILED_TEMPLATES = new ConcurrentHashMap<>();
+    private static final Map<Integer, ForkJoinPool> WRITE_POOLS = new ConcurrentHashMap<>();
+    private static final Item END_OF_ITEMS = new Item(null, null, null, BigDecimal.ZERO);
+
+    private final String templateResource;
+    private final Schema schema;
+    private final ForkJoinPool writePool;
+
+    public XmlGenerator() {
+        this(TEMPLATE_RESOURCE);
+    }
+
+    public XmlGenerator(String templateResource) {
+        this(templateResource, null, null);
+    }
+
+    private XmlGenerator(String templateResource, Schema schema, ForkJoinPool writePool) {
+        this.templateResource = templateResource;
+        this.schema = schema;
+        this.writePool = writePool;
+    }
+
+    /**
+     * Returns a generator that validates every declaration against the CC015C schema {@code xsd} (together with
+     * the files it includes) while writing it. A declaration that does not validate is still written completely,
+     * then a {@link SchemaValidationException} listing its issues by item is thrown. The compiled
+     * schema is cached for the whole process.
+     */
+    public XmlGenerator withSchema(File xsd) throws SAXException {
+        return new XmlGenerator(templateResource, StreamingValidator.schema(xsd), writePool);
+    }
+
+    /**
+     * Returns a generator that encodes the items of large declarations on {@code parallelism} threads and writes
+     * them in order (see {@link ParallelItemWriter}); the file is byte for byte the one written sequentially.
+     * Declarations validated against a schema are always written sequentially. The pool is created on first use
+     * and shared by every generator of the same parallelism for the whole process; its idle threads end on their
+     * own.
+     */
+    public XmlGenerator withParallelWrite(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Write parallelism must be at least 1.");
+        }
+        return new XmlGenerator(templateResource, schema,
+                parallelism > 1 ? WRITE_POOLS.computeIfAbsent(parallelism, ForkJoinPool::new) : null);
+    }
 
     public File buildOutputFile(File outputDirectory) {
-        return new File(outputDirectory, "T2-" + LocalDateTime.now().format(OUTPUT_STAMP) + ".xml");
+        return new File(outputDirectory, OUTPUT_PREFIX + LocalDateTime.now().format(OUTPUT_STAMP) + ".xml");
+    }
+
+    /**
+     * Creates an empty output file whose name contains the source file name and, when that name is already
+     * taken, a counter, so conversions running in the same minute never overwrite each other.
+     */
+    public File createOutputFile(File outputDirectory, File sourceFile) throws IOException {
+        return createOutputFile(outputDirectory, sourceFile, ".xml");
+    }
+
+    /**
+     * Same as {@link #createOutputFile(File, File)} with a custom name ending, e.g. {@link #INDEX_SUFFIX}.
+     */
+    public File createOutputFile(File outputDirectory, File sourceFile, String suffix) throws IOException {
+        String name = sourceFile.getName();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        String base = OUTPUT_PREFIX + name.trim() + "-" + LocalDateTime.now().format(OUTPUT_STAMP);
+        for (int attempt = 1; ; attempt++) {
+            File candidate = new File(outputDirectory, attempt == 1 ? base + suffix : base + "-" + attempt + suffix);
+            if (candidate.createNewFile()) {
+                return candidate;
+            }
+        }
     }
 
     public void generate(File outputFile, String lrn, ExcelData data) throws Exception {
-        Document template = loadTemplate();
-        applyData(template, lrn, data);
-        writeXml(template, outputFile);
+        generate(outputFile, lrn, data, ProgressListener.NONE);
+    }
+
+    /**
+     * Generates the declaration, reporting every item written to {@code listener}; stops with a
+     * {@link java.util.concurrent.CancellationException} once the listener is cancelled, leaving the partial
+     * file for the caller to delete.
+     */
+    public void generate(File outputFile, String lrn, ExcelData data, ProgressListener listener) throws Exception {
+        if (data.getItems().isEmpty()) {
+            Document template = loadTemplate();
+            applyData(template, lrn, data);
+            writeXml(template, outputFile);
+            return;
+        }
+        CompiledTemplate template = compiledTemplate();
+        try (Stage stage = Metrics.stage("generate")) {
+            if (writePool != null && schema == null && data.getItems().size() > ParallelItemWriter.CHUNK_ITEMS) {
+                writeParallel(template, outputFile, lrn, data, listener);
+            } else {
+                writeCompiled(template, outputFile, lrn, data, listener);
+            }
+            stage.items(data.getItems().size()).bytes(outputFile.length());
+        }
+    }
+
+    private void writeCompiled(CompiledTemplate template, File outputFile, String lrn, ExcelData data,
+                               ProgressListener listener) throws Exception {
+        try (Writer output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile),
+                StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+             StreamingValidator validator = StreamingValidator.open(schema, output)) {
+            Writer writer = validator == null ? output : validator.writer();
+            template.writeHeader(writer, lrn, LocalDate.now().toString(), formatDecimal(data.getTotalGrossMass()));
+            CompiledTemplate.ItemValues values = template.newItemValues();
+            if (data instanceof ColumnarExcelData) {
+                ColumnarExcelData columns = (ColumnarExcelData) data;
+                for (int row = 0; row < columns.size(); row++) {
+                    listener.checkCancelled();
+                    template.writeItem(writer, row + 1, columns, row, values);
+                    listener.itemsWritten(row + 1);
+                }
+            } else {
+                int index = 1;
+                for (Item item : data.getItems()) {
+                    listener.checkCancelled();
+                    template.writeItem(writer, index, item, values);
+                    listener.itemsWritten(index);
+                    index++;
+                }
+            }
+            template.writeFooter(writer);
+            if (validator != null) {
+                validator.finish();
+            }
+        }
+    }
+
+    private void writeParallel(CompiledTemplate template, File outputFile, String lrn, ExcelData data,
+                               ProgressListener listener) throws Exception {
+        try (FileChannel channel = FileChannel.open(outputFile.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            new ParallelItemWriter(template, writePool).write(channel, lrn, LocalDate.now().toString(),
+                    formatDecimal(data.getTotalGrossMass()), data, listener);
+        }
+    }
+
+    /**
+     * Writes the items as consecutive declarations of at most {@code maxItems} items each, generated in parallel.
+     * Part files are named after {@code indexFile} ({@code <name>-part01.xml}, ...); each part gets the LRN with
+     * its zero-padded part number appended and its own gross mass. The index file lists every part as CSV.
+     */
+    public List<DeclarationPart> generateSplit(File indexFile, String lrn, ExcelData data, int maxItems)
+            throws Exception {
+        return generateSplit(indexFile, lrn, data, maxItems, ProgressListener.NONE);
+    }
+
+    /**
+     * Same as {@link #generateSplit(File, String, ExcelData, int)}, reporting the items written across all parts
+     * to {@code listener}. On cancellation or failure no part files or index are left behind.
+     */
+    public List<DeclarationPart> generateSplit(File indexFile, String lrn, ExcelData data, int maxItems,
+                                               ProgressListener listener) throws Exception {
+        if (maxItems < 1) {
+            throw new IllegalArgumentException("Maximum items per declaration must be at least 1.");
+        }
+        int itemCount = data.getItems().size();
+        int partCount = Math.max(1, (itemCount + maxItems - 1) / maxItems);
+        int digits = Math.max(2, String.valueOf(partCount).length());
+        if (lrn.length() + digits > MAX_LRN_LENGTH) {
+            throw new IllegalArgumentException("LRN " + lrn + " is too long to derive " + partCount
+                    + " child LRNs (maximum " + MAX_LRN_LENGTH + " characters).");
+        }
+        String baseName = indexFile.getName();
+        if (baseName.endsWith(INDEX_SUFFIX)) {
+            baseName = baseName.substring(0, baseName.length() - INDEX_SUFFIX.length());
+        }
+        compiledTemplate();
+
+        AtomicInteger written = new AtomicInteger();
+        ProgressListener partListener = new ProgressListener() {
+            @Override
+            public void itemsWritten(int items) {
+                listener.itemsWritten(written.incrementAndGet());
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return listener.isCancelled();
+            }
+        };
+
+        Run run = Metrics.currentRun();
+        List<DeclarationPart> parts = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(partCount, Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int part = 0; part < partCount; part++) {
+                int from = part * maxItems;
+                int to = Math.min(itemCount, from + maxItems);
+                String number = String.format("%0" + digits + "d", part + 1);
+                ExcelData partData = data.subData(from, to);
+                File partFile = new File(indexFile.getParentFile(), baseName + "-part" + number + ".xml");
+                DeclarationPart declarationPart = new DeclarationPart(part + 1, lrn + number, from + 1, to,
+                        partData.getTotalGrossMass(), partFile);
+                parts.add(declarationPart);
+                futures.add(pool.submit(() -> {
+                    Metrics.attach(run);
+                    try {
+                        generate(partFile, declarationPart.getLrn(), partData, partListener);
+                    } finally {
+                        Metrics.attach(null);
+                    }
+                    return null;
+                }));
+            }
+            for (int part = 0; part < futures.size(); part++) {
+                try {
+                    futures.get(part).get();
+                } catch (ExecutionException ex) {
+                    pool.shutdownNow();
+                    pool.awaitTermination(1, TimeUnit.MINUTES);
+                    for (DeclarationPart declarationPart : parts) {
+                        declarationPart.getFile().delete();
+                    }
+                    if (ex.getCause() instanceof SchemaValidationException) {
+                        // number the items as in the borderou, not from 1 in every part
+                        DeclarationPart failed = parts.get(part);
+                        throw ((SchemaValidationException) ex.getCause()).inPart(failed.getFirstItem(),
+                                failed.getFile());
+                    }
+                    throw ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        try (CSVWriter writer = new CSVWriter(new OutputStreamWriter(new FileOutputStream(indexFile),
+                StandardCharsets.UTF_8))) {
+            writer.writeNext(new String[]{"part", "lrn", "firstItem", "lastItem", "items", "grossMass", "file"});
+            for (DeclarationPart part : parts) {
+                writer.writeNext(new String[]{String.valueOf(part.getNumber()), part.getLrn(),
+                        String.valueOf(part.getFirstItem()), String.valueOf(part.getLastItem()),
+                        String.valueOf(part.getLastItem() - part.getFirstItem() + 1),
+                        formatDecimal(part.getGrossMass()), part.getFile().getName()});
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Supplies the items of a pipelined generation; see {@link #generatePipelined}.
+     */
+    public interface ItemProducer {
+        /**
+         * Hands every item to {@code sink} in declaration order. The sink blocks while the hand-off queue is full
+         * and throws a {@link CancellationException} once the writer has stopped.
+         */
+        void produce(Consumer<Item> sink) throws Exception;
     }
 
-    private Document loadTemplate() throws Exception {
-        try (InputStream inputStream = XmlGenerator.class.getClassLoader().getResourceAsStream(TEMPLATE_RESOURCE)) {
+    /**
+     * Generates the declaration while {@code producer} is still reading: the producer runs on its own thread and
+     * hands items over through a queue of at most {@code queueCapacity} items, which the calling thread writes as
+     * they arrive, so memory stays bounded by the queue rather than the borderou. Because the header carries the
+     * total gross mass, the items are written to a temporary file next to {@code outputFile} and the declaration
+     * is assembled from header, items and footer once the total is known; the result is byte for byte the one
+     * {@link #generate} writes. Returns the number of items; with none, {@code outputFile} is left untouched.
+     * Cancellation and failures behave as in {@link #generate(File, String, ExcelData, ProgressListener)}.
+     */
+    public int generatePipelined(File outputFile, String lrn, ItemProducer producer, int queueCapacity,
+                                 ProgressListener listener) throws Exception {
+        CompiledTemplate template = compiledTemplate();
+        BlockingQueue<Item> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicBoolean stopped = new AtomicBoolean();
+        Run run = Metrics.currentRun();
+        ExecutorService reader = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "pipeline-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Path items = Files.createTempFile(outputFile.getAbsoluteFile().getParentFile().toPath(),
+                outputFile.getName(), ".items");
+        try (Stage stage = Metrics.stage("pipeline")) {
+            Future<?> reading = reader.submit(() -> {
+                Metrics.attach(run);
+                try {
+                    producer.produce(item -> handOff(queue, item, stopped));
+                } finally {
+                    Metrics.attach(null);
+                    if (!stopped.get()) {
+                        handOff(queue, END_OF_ITEMS, stopped);
+                    }
+                }
+                return null;
+            });
+
+            int count = 0;
+            BigDecimal total = BigDecimal.ZERO;
+            try {
+                try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(items),
+                        StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)) {
+                    CompiledTemplate.ItemValues values = template.newItemValues();
+                    for (Item item = queue.take(); item != END_OF_ITEMS; item = queue.take()) {
+                        listener.checkCancelled();
+                        count++;
+                        template.writeItem(writer, count, item, values);
+                        total = total.add(item.getKgs());
+                        listener.itemsWritten(count);
+                    }
+                }
+                reading.get();
+            } catch (ExecutionException ex) {
+                throw ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+            } finally {
+                stopped.set(true);
+                reading.cancel(true);
+            }
+            if (count > 0) {
+                assemble(template, outputFile, lrn, formatDecimal(total), items);
+            }
+            stage.items(count).bytes(outputFile.length());
+            return count;
+        } finally {
+            reader.shutdownNow();
+            Files.deleteIfExists(items);
+        }
+    }
+
+    private static void handOff(BlockingQueue<Item> queue, Item item, AtomicBoolean stopped) {
+        try {
+            while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                if (stopped.get()) {
+                    throw new CancellationException("Generation stopped.");
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Generation stopped.");
+        }
+    }
+
+    private void assemble(CompiledTemplate template, File outputFile, String lrn, String grossMass, Path items)
+            throws Exception {
+        try (FileOutputStream outputStream = new FileOutputStream(outputFile);
+             Writer output = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8),
+                     WRITE_BUFFER_SIZE);
+             StreamingValidator validator = StreamingValidator.open(schema, output)) {
+            Writer writer = validator == null ? output : validator.writer();
+            template.writeHeader(writer, lrn, LocalDate.now().toString(), grossMass);
+            if (validator == null) {
+                writer.flush();
+                FileChannel target = outputStream.getChannel();
+                try (FileChannel body = FileChannel.open(items, StandardOpenOption.READ)) {
+                    long size = body.size();
+                    for (long position = 0; position < size; ) {
+                        position += body.transferTo(position, size - position, target);
+                    }
+                }
+            } else {
+                // the items have to pass the validator too, so copy them as text
+                try (Reader body = Files.newBufferedReader(items, StandardCharsets.UTF_8)) {
+                    char[] buffer = new char[WRITE_BUFFER_SIZE];
+                    for (int read = body.read(buffer); read != -1; read = body.read(buffer)) {
+                        writer.write(buffer, 0, read);
+                    }
+                }
+            }
+            template.writeFooter(writer);
+            if (validator != null) {
+                validator.finish();
+            }
+        }
+    }
+
+    /**
+     * Compiles the template now instead of on the first generation, e.g. before a server accepts requests.
+     */
+    public void warmUp() throws Exception {
+        compiledTemplate();
+    }
+
+    /**
+     * Returns the compiled form of this generator's template, parsing the resource only on first use per
+     * process.
+     */
+    CompiledTemplate compiledTemplate() throws Exception {
+        CompiledTemplate template = COMPILED_TEMPLATES.get(templateResource);
+        if (template == null) {
+            template = compileTemplate();
+            CompiledTemplate existing = COMPILED_TEMPLATES.putIfAbsent(templateResource, template);
+            if (existing != null) {
+                template = existing;
+            }
+        }
+        return template;
+    }
+
+    private CompiledTemplate compileTemplate() throws Exception {
+        Document document = loadTemplate();
+        Element itemTemplate = applyHeader(document, Slot.LRN.marker(), Slot.LIMIT_DATE.marker(),
+                Slot.GROSS_MASS.marker());
+        fillItem(itemTemplate, Slot.GOODS_ITEM_NUMBER.marker(), Slot.DESCRIPTION_OF_GOODS.marker(),
+                Slot.HARMONIZED_SYSTEM_SUB_HEADING_CODE.marker(), Slot.ITEM_GROSS_MASS.marker(),
+                Slot.REFERENCE_NUMBER.marker());
+        return CompiledTemplate.compile(document, houseConsignment(document), itemTemplate);
+    }
+
+    @SuppressWarnings("try") // the stage is only timed, nothing is counted
+    Document loadTemplate() throws Exception {
+        try (Stage ignored = Metrics.stage("loadTemplate");
+             InputStream inputStream = XmlGenerator.class.getClassLoader().getResourceAsStream(templateResource)) {
             if (inputStream == null) {
-                throw new IllegalStateException("Template XML not found in resources: " + TEMPLATE_RESOURCE);
+                throw new IllegalStateException("Template XML not found in resources: " + templateResource);
             }
             String xml = readToString(inputStream);
             int start = xml.indexOf("<?xml");
@@ -54,7 +489,20 @@ public class XmlGenerator {
         }
     }
 
-    private void applyData(Document document, String lrn, ExcelData data) {
+    void applyData(Document document, String lrn, ExcelData data) {
+        try (Stage stage = Metrics.stage("applyData")) {
+            String grossMass = formatDecimal(data.getTotalGrossMass());
+            Element itemTemplate = applyHeader(document, lrn, LocalDate.now().toString(), grossMass);
+            addItems(document, itemTemplate, data);
+            stage.items(data.getItems().size());
+        }
+    }
+
+    /**
+     * Fills the declaration-level values and removes the sample items, returning a detached copy of the
+     * first one to be used as the item template.
+     */
+    private Element applyHeader(Document document, String lrn, String limitDateText, String grossMass) {
         Element root = document.getRootElement();
 
         Element transitOperation = root.getChild("TransitOperation");
@@ -65,7 +513,7 @@ public class XmlGenerator {
             }
             Element limitDate = transitOperation.getChild("limitDate");
             if (limitDate != null) {
-                limitDate.setText(LocalDate.now().toString());
+                limitDate.setText(limitDateText);
             }
         }
 
@@ -75,7 +523,7 @@ public class XmlGenerator {
         }
         Element consignmentGross = consignment.getChild("grossMass");
         if (consignmentGross != null) {
-            consignmentGross.setText(formatDecimal(data.getTotalGrossMass()));
+            consignmentGross.setText(grossMass);
         }
 
         Element houseConsignment = consignment.getChild("HouseConsignment");
@@ -84,7 +532,7 @@ public class XmlGenerator {
         }
         Element houseGross = houseConsignment.getChild("grossMass");
         if (houseGross != null) {
-            houseGross.setText(formatDecimal(data.getTotalGrossMass()));
+            houseGross.setText(grossMass);
         }
 
         List<Element> existingItems = houseConsignment.getChildren("ConsignmentItem");
@@ -93,63 +541,79 @@ public class XmlGenerator {
         }
         Element itemTemplate = existingItems.get(0).clone();
         houseConsignment.removeChildren("ConsignmentItem");
+        return itemTemplate;
+    }
 
+    private void addItems(Document document, Element itemTemplate, ExcelData data) {
+        Element houseConsignment = houseConsignment(document);
         int index = 1;
         for (Item item : data.getItems()) {
             Element consignmentItem = itemTemplate.clone();
-            Element goodsItemNumber = consignmentItem.getChild("goodsItemNumber");
-            if (goodsItemNumber != null) {
-                goodsItemNumber.setText(String.valueOf(index));
-            }
-            Element declarationGoodsItemNumber = consignmentItem.getChild("declarationGoodsItemNumber");
-            if (declarationGoodsItemNumber != null) {
-                declarationGoodsItemNumber.setText(String.valueOf(index));
-            }
+            fillItem(consignmentItem, String.valueOf(index), item.getDescription(), item.getCode(),
+                    formatDecimal(item.getKgs()), item.getAwb());
+            houseConsignment.addContent(consignmentItem);
+            index++;
+        }
+    }
 
-            Element commodity = consignmentItem.getChild("Commodity");
-            if (commodity != null) {
-                Element description = commodity.getChild("descriptionOfGoods");
-                if (description != null) {
-                    description.setText(item.getDescription());
-                }
-                Element commodityCode = commodity.getChild("CommodityCode");
-                if (commodityCode != null) {
-                    Element harmonized = commodityCode.getChild("harmonizedSystemSubHeadingCode");
-                    if (harmonized != null) {
-                        harmonized.setText(item.getCode());
-                    }
-                }
-                Element goodsMeasure = commodity.getChild("GoodsMeasure");
-                if (goodsMeasure != null) {
-                    Element grossMass = goodsMeasure.getChild("grossMass");
-                    if (grossMass != null) {
-                        grossMass.setText(formatDecimal(item.getKgs()));
-                    }
+    private void fillItem(Element consignmentItem, String itemNumber, String descriptionOfGoods, String code,
+                          String grossMassText, String awb) {
+        Element goodsItemNumber = consignmentItem.getChild("goodsItemNumber");
+        if (goodsItemNumber != null) {
+            goodsItemNumber.setText(itemNumber);
+        }
+        Element declarationGoodsItemNumber = consignmentItem.getChild("declarationGoodsItemNumber");
+        if (declarationGoodsItemNumber != null) {
+            declarationGoodsItemNumber.setText(itemNumber);
+        }
+
+        Element commodity = consignmentItem.getChild("Commodity");
+        if (commodity != null) {
+            Element description = commodity.getChild("descriptionOfGoods");
+            if (description != null) {
+                description.setText(descriptionOfGoods);
+            }
+            Element commodityCode = commodity.getChild("CommodityCode");
+            if (commodityCode != null) {
+                Element harmonized = commodityCode.getChild("harmonizedSystemSubHeadingCode");
+                if (harmonized != null) {
+                    harmonized.setText(code);
                 }
             }
-
-            Element previousDocument = consignmentItem.getChild("PreviousDocument");
-            if (previousDocument != null) {
-                Element referenceNumber = previousDocument.getChild("referenceNumber");
-                if (referenceNumber != null) {
-                    referenceNumber.setText(item.getAwb());
+            Element goodsMeasure = commodity.getChild("GoodsMeasure");
+            if (goodsMeasure != null) {
+                Element grossMass = goodsMeasure.getChild("grossMass");
+                if (grossMass != null) {
+                    grossMass.setText(grossMassText);
                 }
             }
+        }
 
-            houseConsignment.addContent(consignmentItem);
-            index++;
+        Element previousDocument = consignmentItem.getChild("PreviousDocument");
+        if (previousDocument != null) {
+            Element referenceNumber = previousDocument.getChild("referenceNumber");
+            if (referenceNumber != null) {
+                referenceNumber.setText(awb);
+            }
         }
     }
 
-    private void writeXml(Document document, File outputFile) throws IOException {
+    private Element houseConsignment(Document document) {
+        return document.getRootElement().getChild("Consignment").getChild("HouseConsignment");
+    }
+
+    void writeXml(Document document, File outputFile) throws IOException {
         XMLOutputter outputter = new XMLOutputter(Format.getPrettyFormat());
-        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(outputFile),
-                StandardCharsets.UTF_8)) {
-            outputter.output(document, writer);
+        try (Stage stage = Metrics.stage("writeXml")) {
+            try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(outputFile),
+                    StandardCharsets.UTF_8)) {
+                outputter.output(document, writer);
+            }
+            stage.bytes(outputFile.length());
         }
     }
 
-    private String formatDecimal(BigDecimal value) {
+    static String formatDecimal(BigDecimal value) {
         BigDecimal normalized = value.stripTrailingZeros();
         if (normalized.scale() < 0) {
             normalized = normalized.setScale(0);
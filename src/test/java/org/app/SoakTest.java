@@ -0,0 +1,195 @@
+package org.app;
+
+import org.app.excel.ExcelReader;
+import org.app.model.ExcelData;
+import org.app.model.Item;
+import org.app.model.ProgressListener;
+import org.app.xml.XmlGenerator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Soak run for the worst days: synthetic borderouri of 100k to 1M rows converted the three ways the tool can
+ * write them, each checked against a heap ceiling, a wall-time budget and the correctness of its output. Only run
+ * by {@code mvn -Psoak test}, which forks the tests with a fixed {@code -Xmx} (see the profile for the defaults):
+ * <pre>
+ * mvn -Psoak test [-Dsoak.rows=100000,1000000] [-Dsoak.xmx=512m] [-Dsoak.maxHeapMb=384]
+ *         [-Dsoak.millisPer1kRows=100]
+ * </pre>
+ * The peak heap is the sum of the heap pools' peak usage from the start of reading to the end of writing, an upper
+ * bound of the real peak. The declaration is streamed back and must have one ConsignmentItem per row with
+ * goodsItemNumber running from 1 without gaps, and the consignment and house consignment grossMass must equal the
+ * sum of the item masses and of the borderou.
+ */
+@Tag("soak")
+class SoakTest {
+    private static final String LRN = "26RO000000SOAK001";
+    private static final Map<Integer, File> WORKBOOKS = new HashMap<>();
+    private static final Map<Integer, BigDecimal> TOTALS = new HashMap<>();
+
+    enum Mode {
+        GENERATE,
+        PIPELINED,
+        PARALLEL_WRITE
+    }
+
+    static Stream<Arguments> runs() {
+        List<Arguments> runs = new ArrayList<>();
+        for (String rows : System.getProperty("soak.rows", "100000,1000000").split(",")) {
+            for (Mode mode : Mode.values()) {
+                runs.add(Arguments.of(Integer.parseInt(rows.trim()), mode));
+            }
+        }
+        return runs.stream();
+    }
+
+    @AfterAll
+    static void deleteWorkbooks() {
+        for (File workbook : WORKBOOKS.values()) {
+            if (!workbook.delete()) {
+                workbook.deleteOnExit();
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "{0} rows, {1}")
+    @MethodSource("runs")
+    void convertsWithinHeapAndTime(int rows, Mode mode) throws Exception {
+        long maxHeapBytes = Long.getLong("soak.maxHeapMb", 384) * 1024 * 1024;
+        long maxMillis = Math.max(1, rows / 1000) * Long.getLong("soak.millisPer1kRows", 100);
+        File workbook = workbook(rows);
+        BigDecimal expectedTotal = TOTALS.get(rows);
+        File output = File.createTempFile("soak-" + rows + "-", ".xml");
+        try {
+            List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                    heapPools.add(pool);
+                }
+            }
+            System.gc();
+            for (MemoryPoolMXBean pool : heapPools) {
+                pool.resetPeakUsage();
+            }
+
+            long start = System.nanoTime();
+            ExcelReader reader = new ExcelReader();
+            if (mode == Mode.PIPELINED) {
+                int items = new XmlGenerator().generatePipelined(output, LRN,
+                        sink -> reader.read(workbook, sink), 1024, ProgressListener.NONE);
+                assertEquals(rows, items, "items written");
+            } else {
+                ExcelData data = reader.read(workbook);
+                XmlGenerator generator = mode == Mode.PARALLEL_WRITE
+                        ? new XmlGenerator().withParallelWrite(4) : new XmlGenerator();
+                generator.generate(output, LRN, data);
+                checkData(data, rows, expectedTotal);
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            long peakHeap = 0;
+            for (MemoryPoolMXBean pool : heapPools) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+            System.out.println(String.format(Locale.ROOT, "%,9d rows  %-14s %6d ms  peak heap %5d MB  xml %5d MB",
+                    rows, mode, millis, peakHeap >> 20, output.length() >> 20));
+
+            assertTrue(peakHeap <= maxHeapBytes, String.format(Locale.ROOT,
+                    "peak heap %d MB above the ceiling of %d MB", peakHeap >> 20, maxHeapBytes >> 20));
+            assertTrue(millis <= maxMillis, String.format(Locale.ROOT, "took %d ms, budget %d ms", millis, maxMillis));
+            checkDeclaration(output, rows, expectedTotal);
+        } finally {
+            if (!output.delete()) {
+                output.deleteOnExit();
+            }
+        }
+    }
+
+    private static synchronized File workbook(int rows) throws Exception {
+        File workbook = WORKBOOKS.get(rows);
+        if (workbook == null) {
+            workbook = File.createTempFile("soak-" + rows + "-", ".xlsx");
+            TOTALS.put(rows, SyntheticBorderouri.writeXlsx(workbook, rows));
+            WORKBOOKS.put(rows, workbook);
+        }
+        return workbook;
+    }
+
+    private static void checkData(ExcelData data, int rows, BigDecimal expectedTotal) {
+        assertEquals(rows, data.getItems().size(), "items read");
+        BigDecimal sum = BigDecimal.ZERO;
+        for (Item item : data.getItems()) {
+            sum = sum.add(item.getKgs());
+        }
+        assertEquals(0, sum.compareTo(data.getTotalGrossMass()),
+                "getTotalGrossMass() is " + data.getTotalGrossMass() + ", the items add up to " + sum);
+        assertEquals(0, sum.compareTo(expectedTotal), "items add up to " + sum + ", the borderou to " + expectedTotal);
+    }
+
+    private static void checkDeclaration(File output, int rows, BigDecimal expectedTotal) throws Exception {
+        BigDecimal consignmentMass = null;
+        BigDecimal houseConsignmentMass = null;
+        BigDecimal itemMass = BigDecimal.ZERO;
+        int items = 0;
+        Deque<String> path = new ArrayDeque<>();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(output))) {
+            XMLStreamReader xml = XMLInputFactory.newInstance().createXMLStreamReader(in);
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    path.pop();
+                } else if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = xml.getLocalName();
+                    String parent = path.peek();
+                    if ("grossMass".equals(name)) {
+                        BigDecimal mass = new BigDecimal(xml.getElementText().trim());
+                        if ("Consignment".equals(parent)) {
+                            consignmentMass = mass;
+                        } else if ("HouseConsignment".equals(parent)) {
+                            houseConsignmentMass = mass;
+                        } else if ("GoodsMeasure".equals(parent)) {
+                            itemMass = itemMass.add(mass);
+                        }
+                    } else if ("goodsItemNumber".equals(name) && "ConsignmentItem".equals(parent)) {
+                        assertEquals(++items, Integer.parseInt(xml.getElementText().trim()), "goodsItemNumber");
+                    } else {
+                        path.push(name);
+                    }
+                }
+            }
+            xml.close();
+        }
+        assertEquals(rows, items, "items in the declaration");
+        assertEquals(0, itemMass.compareTo(expectedTotal),
+                "item grossMass adds up to " + itemMass + ", the borderou to " + expectedTotal);
+        assertTrue(consignmentMass != null && consignmentMass.compareTo(itemMass) == 0,
+                "Consignment grossMass " + consignmentMass + ", items " + itemMass);
+        assertTrue(houseConsignmentMass != null && houseConsignmentMass.compareTo(itemMass) == 0,
+                "HouseConsignment grossMass " + houseConsignmentMass + ", items " + itemMass);
+    }
+}
@@ -0,0 +1,93 @@
+package org.app;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.app.model.ExcelData;
+import org.app.model.Item;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Borderouri of any size in the carrier layout: a title block, the header row and one row per AWB, with weights
+ * to the gram. The same seed gives the same rows in a workbook and in memory.
+ */
+public final class SyntheticBorderouri {
+    private static final String[][] GOODS = {
+            {"DISPLAY TELEFON", "851779"},
+            {"CARCASA TELEFON", "392690"},
+            {"ACUMULATOR", "850760"},
+            {"CABLU USB", "854442"},
+            {"PIESE AUTO", "870899"},
+            {"IMBRACAMINTE", "620342"},
+            {"COSMETICE", "330499"},
+            {"JUCARII", "950300"},
+    };
+
+    private SyntheticBorderouri() {
+    }
+
+    /**
+     * Writes {@code rows} rows to an .xlsx file and returns the total gross mass they add up to.
+     */
+    public static BigDecimal writeXlsx(File file, int rows) throws IOException {
+        BigDecimal total = BigDecimal.ZERO;
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(200)) {
+            Sheet sheet = workbook.createSheet("Borderou");
+            sheet.createRow(0).createCell(0).setCellValue("BORDEROU STANDARD UK");
+            Row header = sheet.createRow(2);
+            header.createCell(0).setCellValue("Nr.");
+            header.createCell(1).setCellValue("AWB");
+            header.createCell(2).setCellValue("Descriere marfa");
+            header.createCell(3).setCellValue("Incadrare");
+            header.createCell(4).setCellValue("Greutate");
+            List<Item> items = items(rows);
+            for (int i = 0; i < rows; i++) {
+                Item item = items.get(i);
+                Row row = sheet.createRow(i + 3);
+                row.createCell(0).setCellValue(i + 1);
+                row.createCell(1).setCellValue(item.getAwb());
+                row.createCell(2).setCellValue(item.getDescription());
+                row.createCell(3).setCellValue(item.getCode());
+                row.createCell(4).setCellValue(item.getKgs().doubleValue());
+                total = total.add(item.getKgs());
+            }
+            try (OutputStream outputStream = new FileOutputStream(file)) {
+                workbook.write(outputStream);
+            }
+            workbook.dispose();
+        }
+        return total;
+    }
+
+    /**
+     * The rows {@link #writeXlsx} writes, as a plain list-backed borderou.
+     */
+    public static ExcelData data(int rows) {
+        List<Item> items = items(rows);
+        BigDecimal total = BigDecimal.ZERO;
+        for (Item item : items) {
+            total = total.add(item.getKgs());
+        }
+        return new ExcelData(items, total);
+    }
+
+    private static List<Item> items(int rows) {
+        Random random = new Random(rows);
+        List<Item> items = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            String[] goods = GOODS[random.nextInt(GOODS.length)];
+            // 0 to 3 decimals, as carriers mix whole kilograms and grams
+            BigDecimal kgs = BigDecimal.valueOf(1 + random.nextInt(40_000), random.nextInt(4));
+            items.add(new Item(goods[0], goods[1], String.format("1Z%06dX%010d", i % 1_000_000, i), kgs));
+        }
+        return items;
+    }
+}
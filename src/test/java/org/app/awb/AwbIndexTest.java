@@ -0,0 +1,164 @@
+package org.app.awb;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AwbIndexTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void growsPastHalfFullAndReopens() throws Exception {
+        List<String> awbs = new ArrayList<>();
+        for (int i = 0; i < 40_000; i++) {
+            awbs.add("1Z" + i);
+        }
+        try (AwbIndex index = AwbIndex.open(directory.toFile())) {
+            assertEquals(30_000, index.record(awbs.subList(0, 30_000), "LRN1", new File("a.xml")));
+            assertEquals(10_000, index.record(awbs.subList(30_000, 40_000), "LRN1", new File("b.xml")));
+            assertEquals(40_000, index.size());
+        }
+
+        assertEquals(Collections.singletonList("awb-131072.idx"), tableFiles());
+        try (AwbIndex index = AwbIndex.open(directory.toFile())) {
+            assertEquals(40_000, index.size());
+            for (int i = 0; i < awbs.size(); i += 997) {
+                List<AwbIndex.Declaration> found = index.find(awbs.get(i));
+                assertEquals(1, found.size(), awbs.get(i));
+                assertEquals("LRN1", found.get(0).getLrn());
+            }
+            assertTrue(index.find("1Z40000").isEmpty());
+        }
+    }
+
+    @Test
+    void cutsOffARecordLeftHalfWritten() throws Exception {
+        try (AwbIndex index = AwbIndex.open(directory.toFile())) {
+            index.record(Collections.singletonList("1ZA"), "LRN1", new File("a.xml"));
+            index.record(Collections.singletonList("1ZB"), "LRN2", new File("b.xml"));
+        }
+        File data = directory.resolve("awb.dat").toFile();
+        long complete = data.length();
+        try (RandomAccessFile file = new RandomAccessFile(data, "rw")) {
+            // the first bytes of a third record: its length and part of its payload
+            file.seek(complete);
+            file.writeInt(40);
+            file.writeLong(System.currentTimeMillis());
+        }
+
+        try (AwbIndex index = AwbIndex.open(directory.toFile())) {
+            assertEquals(complete, data.length());
+            assertEquals(2, index.size());
+            assertEquals("LRN2", index.find("1ZB").get(0).getLrn());
+            index.record(Collections.singletonList("1ZC"), "LRN3", new File("c.xml"));
+        }
+        try (AwbIndex index = AwbIndex.open(directory.toFile())) {
+            assertEquals(3, index.size());
+            assertEquals("LRN3", index.find("1zc ").get(0).getLrn());
+        }
+    }
+
+    @Test
+    void indexesRecordsAppendedAfterTheTableWasLastWritten() throws Exception {
+        try (AwbIndex index = AwbIndex.open(directory.toFile())) {
+            index.record(Collections.singletonList("1ZA"), "LRN1", new File("a.xml"));
+        }
+        Path table = directory.resolve(tableFiles().get(0));
+        Path stale = directory.resolve("stale.copy");
+        Files.copy(table, stale);
+        try (AwbIndex index = AwbIndex.open(directory.toFile())) {
+            index.record(Arrays.asList("1ZB", "1ZC"), "LRN2", new File("b.xml"));
+        }
+        // as if the process died after appending to the log but before the table reached the disk
+        Files.move(stale, table, StandardCopyOption.REPLACE_EXISTING);
+
+        try (AwbIndex index = AwbIndex.open(directory.toFile())) {
+            assertEquals(3, index.size());
+            assertEquals("LRN2", index.find("1ZC").get(0).getLrn());
+        }
+    }
+
+    @Test
+    void isHeldByOneOpenerAtATime() throws Exception {
+        try (AwbIndex ignored = AwbIndex.open(directory.toFile())) {
+            assertThrows(IllegalStateException.class, () -> AwbIndex.open(directory.toFile()));
+        }
+        AwbIndex.open(directory.toFile()).close();
+    }
+
+    @Test
+    void concurrentReservationsUnderAnotherLrnConflict() throws Exception {
+        try (AwbIndex index = AwbIndex.open(directory.toFile())) {
+            AwbIndex.Reservation first = index.newReservation("LRN1", new File("a.xlsx"));
+            AwbIndex.Reservation second = index.newReservation("LRN2", new File("b.xlsx"));
+            AwbIndex.Reservation again = index.newReservation("LRN1", new File("a-copy.xlsx"));
+
+            assertTrue(index.reserve(first, Arrays.asList("1ZA", "1ZB"), AwbIndex.Policy.BLOCK).isEmpty());
+            List<AwbIndex.Declaration> conflicts = index.reserve(second, Arrays.asList("1ZC", "1zb"),
+                    AwbIndex.Policy.BLOCK);
+            assertEquals(1, conflicts.size());
+            assertTrue(conflicts.get(0).isPending());
+            assertEquals("1ZB", conflicts.get(0).getAwb());
+            assertEquals("LRN1", conflicts.get(0).getLrn());
+            // the same declaration generated again is not a conflict
+            assertTrue(index.reserve(again, Collections.singletonList("1ZA"), AwbIndex.Policy.BLOCK).isEmpty());
+
+            // a blocked reservation took nothing, so 1ZC is still free
+            AwbIndex.Reservation third = index.newReservation("LRN3", new File("c.xlsx"));
+            assertTrue(index.reserve(third, Collections.singletonList("1ZC"), AwbIndex.Policy.BLOCK).isEmpty());
+
+            index.release(first);
+            index.release(again);
+            assertTrue(index.reserve(second, Arrays.asList("1ZA", "1ZB"), AwbIndex.Policy.BLOCK).isEmpty());
+            assertEquals(0, index.size());
+        }
+    }
+
+    @Test
+    void warnPolicyReservesAndCommitRecords() throws Exception {
+        try (AwbIndex index = AwbIndex.open(directory.toFile())) {
+            AwbIndex.Reservation first = index.newReservation("LRN1", new File("a.xlsx"));
+            AwbIndex.Reservation second = index.newReservation("LRN2", new File("b.xlsx"));
+            assertTrue(index.reserve(first, Collections.singletonList("1ZA"), AwbIndex.Policy.WARN).isEmpty());
+            assertEquals(1, index.reserve(second, Collections.singletonList("1ZA"), AwbIndex.Policy.WARN).size());
+
+            assertEquals(1, index.commit(first, new File("a.xml")));
+            index.release(second);
+            assertThrows(IllegalStateException.class, () -> index.commit(first, new File("a.xml")));
+
+            AwbIndex.Reservation third = index.newReservation("LRN3", new File("c.xlsx"));
+            List<AwbIndex.Declaration> conflicts = index.reserve(third, Collections.singletonList("1ZA"),
+                    AwbIndex.Policy.BLOCK);
+            assertEquals(1, conflicts.size());
+            assertFalse(conflicts.get(0).isPending());
+            assertEquals("LRN1", conflicts.get(0).getLrn());
+            assertEquals(new File("a.xml").getAbsolutePath(), conflicts.get(0).getOutputFile());
+        }
+    }
+
+    private List<String> tableFiles() throws IOException {
+        List<String> names = new ArrayList<>();
+        try (Stream<Path> entries = Files.list(directory)) {
+            entries.map(path -> path.getFileName().toString()).filter(name -> name.endsWith(".idx")).sorted()
+                    .forEach(names::add);
+        }
+        return names;
+    }
+}
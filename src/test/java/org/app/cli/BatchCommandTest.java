@@ -0,0 +1,50 @@
+package org.app.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchCommandTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsBorderouriButNotTheFilesWrittenNextToThem() throws IOException {
+        touch("a.xlsx", "b.csv", "c.tsv", "d.xls", "notes.txt", "~$a.xlsx",
+                "T2-b-20261018-0614.xml", "T2-b-20261018-0614-index.csv", "T2-b-20261018-0614-part01.xml");
+
+        assertEquals(Arrays.asList("a.xlsx", "b.csv", "c.tsv", "d.xls"),
+                names(BatchCommand.findExcelFiles(directory.toString())));
+    }
+
+    @Test
+    void globSkipsIndexFilesToo() throws IOException {
+        touch("a.csv", "T2-a-20261018-0614-index.csv", "T2-a-20261018-0614-2-index.csv");
+
+        assertEquals(Arrays.asList("a.csv"),
+                names(BatchCommand.findExcelFiles(directory + File.separator + "*.csv")));
+    }
+
+    private void touch(String... names) throws IOException {
+        for (String name : names) {
+            Files.createFile(directory.resolve(name));
+        }
+    }
+
+    private static List<String> names(List<File> files) {
+        List<String> names = new ArrayList<>();
+        for (File file : files) {
+            names.add(file.getName());
+        }
+        return names;
+    }
+}
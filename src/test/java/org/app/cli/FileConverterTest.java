@@ -0,0 +1,59 @@
+package org.app.cli;
+
+import org.app.SyntheticBorderouri;
+import org.app.excel.ExcelReader;
+import org.app.xml.XmlGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileConverterTest {
+    private static final String LRN = "24RO000000000001";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void pipelinedConversionWritesTheDeclaration() throws Exception {
+        File borderou = directory.resolve("big.xlsx").toFile();
+        SyntheticBorderouri.writeXlsx(borderou, 3000);
+
+        FileConverter.Result result = pipelinedConverter().convert(borderou, LRN, directory.toFile());
+
+        assertTrue(result.isSuccess(), result.error);
+        assertEquals(3000, result.items);
+        assertTrue(result.output.length() > 0);
+    }
+
+    @Test
+    void failedPipelinedConversionDeletesItsOutput() throws Exception {
+        File borderou = directory.resolve("broken.xlsx").toFile();
+        Files.write(borderou.toPath(), "not a workbook".getBytes(StandardCharsets.US_ASCII));
+
+        FileConverter.Result result = pipelinedConverter().convert(borderou, LRN, directory.toFile());
+
+        assertFalse(result.isSuccess());
+        assertEquals("broken.xlsx", listDirectory());
+    }
+
+    private static FileConverter pipelinedConverter() {
+        return new FileConverter(new ExcelReader(), new XmlGenerator(), 0, true);
+    }
+
+    private String listDirectory() throws IOException {
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.map(path -> path.getFileName().toString()).sorted().collect(Collectors.joining(", "));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.app.excel;
+
+import org.app.model.ExcelData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvSheetStreamerTest {
+    private static final Charset WINDOWS_1250 = Charset.forName("windows-1250");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void semicolonWinsOverCommasInDescriptions() throws Exception {
+        File file = write("semicolon.csv", StandardCharsets.UTF_8,
+                "AWB;Descriere marfa;Greutate\n1Z1;CABLU, USB;1,5\n1Z2;HUSA, PIELE, NEAGRA;2\n");
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("AWB", "Descriere marfa", "Greutate"),
+                Arrays.asList("1Z1", "CABLU, USB", "1,5"),
+                Arrays.asList("1Z2", "HUSA, PIELE, NEAGRA", "2")), rows(file));
+    }
+
+    @Test
+    void tabsAreDetectedInACsvFileAndAssumedInATsvFile() throws Exception {
+        String text = "AWB\tDescriere marfa\tGreutate\n1Z1\tCABLU; USB, 2M\t1.5\n";
+        List<List<String>> expected = Arrays.asList(
+                Arrays.asList("AWB", "Descriere marfa", "Greutate"),
+                Arrays.asList("1Z1", "CABLU; USB, 2M", "1.5"));
+
+        assertEquals(expected, rows(write("tabs.csv", StandardCharsets.UTF_8, text)));
+        assertEquals(expected, rows(write("tabs.tsv", StandardCharsets.UTF_8, text)));
+    }
+
+    @Test
+    void commaWithQuotedCells() throws Exception {
+        File file = write("comma.csv", StandardCharsets.UTF_8,
+                "AWB,Descriere marfa,Greutate\n1Z1,\"CABLU, USB\",\"1,5\"\n1Z2,JUCARII,3\n");
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("AWB", "Descriere marfa", "Greutate"),
+                Arrays.asList("1Z1", "CABLU, USB", "1,5"),
+                Arrays.asList("1Z2", "JUCARII", "3")), rows(file));
+    }
+
+    @Test
+    void backslashesAreData() throws Exception {
+        File file = write("backslash.csv", StandardCharsets.UTF_8,
+                "AWB;Descriere marfa;Greutate\n"
+                        + "1Z1;\"TEAVA 1\\2\"\" PVC\";1\n"
+                        + "1Z2;C:\\EXPORT\\PIESE;2\n"
+                        + "1Z3;\"SEPARATOR \\\";3\n"
+                        + "1Z4;ULTIMUL;4\n");
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("AWB", "Descriere marfa", "Greutate"),
+                Arrays.asList("1Z1", "TEAVA 1\\2\" PVC", "1"),
+                Arrays.asList("1Z2", "C:\\EXPORT\\PIESE", "2"),
+                Arrays.asList("1Z3", "SEPARATOR \\", "3"),
+                Arrays.asList("1Z4", "ULTIMUL", "4")), rows(file));
+    }
+
+    @Test
+    void windows1250WithoutBom() throws Exception {
+        String text = "AWB;Descriere marfa;Greutate\n1Z1;ŞURUBURI ŢEAVĂ OŢEL;1,5\n";
+
+        assertEquals(Arrays.asList("1Z1", "ŞURUBURI ŢEAVĂ OŢEL", "1,5"),
+                rows(write("ansi.csv", WINDOWS_1250, text)).get(1));
+    }
+
+    @Test
+    void utf8WithAndWithoutBom() throws Exception {
+        String text = "AWB;Descriere marfa;Greutate\n1Z1;ȘURUBURI ȚEAVĂ;1,5\n";
+        byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+        File withBom = directory.resolve("bom.csv").toFile();
+        Files.write(withBom.toPath(), concat(bom, text.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(Arrays.asList("AWB", "Descriere marfa", "Greutate"), rows(withBom).get(0));
+        assertEquals(Arrays.asList("1Z1", "ȘURUBURI ȚEAVĂ", "1,5"), rows(withBom).get(1));
+        assertEquals(Arrays.asList("1Z1", "ȘURUBURI ȚEAVĂ", "1,5"),
+                rows(write("utf8.csv", StandardCharsets.UTF_8, text)).get(1));
+    }
+
+    @Test
+    void readsABorderouExport() throws Exception {
+        File file = write("borderou.csv", WINDOWS_1250,
+                "BORDEROU STANDARD UK;;;;\n;;;;\nNr.;AWB;Descriere marfa;Incadrare;Greutate\n"
+                        + "1;1Z0001;ŞURUBURI;731815;1,5\n2;1Z0002;\"CABLU 1\\2\"\" USB\";854442;0,25\n");
+
+        ExcelData data = new ExcelReader().read(file);
+
+        assertEquals(2, data.getItems().size());
+        assertEquals("ŞURUBURI", data.getItems().get(0).getDescription());
+        assertEquals("CABLU 1\\2\" USB", data.getItems().get(1).getDescription());
+        assertEquals(0, new BigDecimal("1.75").compareTo(data.getTotalGrossMass()));
+    }
+
+    private File write(String name, Charset charset, String text) throws Exception {
+        File file = directory.resolve(name).toFile();
+        Files.write(file.toPath(), text.getBytes(charset));
+        return file;
+    }
+
+    private static List<List<String>> rows(File file) throws Exception {
+        List<List<String>> rows = new ArrayList<>();
+        new CsvSheetStreamer(file).stream(0, (rowIndex, row) -> {
+            List<String> cells = new ArrayList<>();
+            for (int column = 0; column < row.getCellCount(); column++) {
+                cells.add(row.getText(column));
+            }
+            rows.add(cells);
+            return true;
+        });
+        return rows;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+}
@@ -0,0 +1,91 @@
+package org.app.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ColumnarExcelDataTest {
+    // whole grams, stored as grams, and finer or huge masses, kept exactly on the side
+    private static final String[] MASSES = {
+            "1.5", "2.0", "2.000", "100", "100.00", "1E+3", "0", "0.000", "0.001", "12345.678", "99999999999.999",
+            "-1.5", "-0.001", "-100", "-0.5",
+            "1.0005", "0.0001", "-2.50005", "3.14159265358979", "1E+20", "123456789012345678.9",
+    };
+
+    @Test
+    void formatsMassesLikeBigDecimal() {
+        ColumnarExcelData data = build(MASSES);
+        CharSlice slice = new CharSlice();
+        for (int row = 0; row < MASSES.length; row++) {
+            BigDecimal mass = new BigDecimal(MASSES[row]);
+            assertEquals(mass.stripTrailingZeros().toPlainString(), data.formatKgs(row, slice).toString(),
+                    MASSES[row]);
+            assertEquals(0, mass.compareTo(data.getKgs(row)), MASSES[row]);
+            assertEquals(0, mass.compareTo(data.getItems().get(row).getKgs()), MASSES[row]);
+        }
+    }
+
+    @Test
+    void totalsAreExact() {
+        ColumnarExcelData data = build(MASSES);
+
+        assertEquals(sum(0, MASSES.length).stripTrailingZeros(), data.getTotalGrossMass().stripTrailingZeros());
+        assertEquals(sum(2, 9).stripTrailingZeros(), data.subData(2, 9).getTotalGrossMass().stripTrailingZeros());
+        assertEquals(sum(14, 19).stripTrailingZeros(),
+                data.subData(14, 19).getTotalGrossMass().stripTrailingZeros());
+        assertEquals(0, data.subData(5, 5).getTotalGrossMass().signum());
+    }
+
+    @Test
+    void subDataAndBinaryFormKeepExactMasses() throws Exception {
+        ColumnarExcelData data = build(MASSES);
+        ColumnarExcelData part = (ColumnarExcelData) data.subData(10, MASSES.length);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            part.writeTo(out);
+        }
+        ColumnarExcelData read = ColumnarExcelData.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        CharSlice slice = new CharSlice();
+        for (int row = 0; row < part.size(); row++) {
+            String expected = new BigDecimal(MASSES[10 + row]).stripTrailingZeros().toPlainString();
+            assertEquals(expected, part.formatKgs(row, slice).toString());
+            assertEquals(expected, read.formatKgs(row, slice).toString());
+        }
+        assertEquals(0, part.getTotalGrossMass().compareTo(read.getTotalGrossMass()));
+    }
+
+    @Test
+    void formatsGramsAtTheEdges() {
+        CharSlice slice = new CharSlice();
+        for (long grams : new long[]{0, 1, 10, 999, 1000, 1001, 1010, -1, -1000, -1234, Long.MAX_VALUE,
+                -Long.MAX_VALUE}) {
+            assertEquals(BigDecimal.valueOf(grams, ColumnarExcelData.MASS_SCALE).stripTrailingZeros().toPlainString(),
+                    ColumnarExcelData.formatGrams(grams, slice).toString(), String.valueOf(grams));
+        }
+    }
+
+    private static ColumnarExcelData build(String[] masses) {
+        ColumnarExcelData.Builder builder = new ColumnarExcelData.Builder();
+        for (int i = 0; i < masses.length; i++) {
+            builder.add("ITEM " + i, "851779", "1Z" + i, new BigDecimal(masses[i]));
+        }
+        return builder.build();
+    }
+
+    private static BigDecimal sum(int from, int to) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int i = from; i < to; i++) {
+            sum = sum.add(new BigDecimal(MASSES[i]));
+        }
+        return sum;
+    }
+}
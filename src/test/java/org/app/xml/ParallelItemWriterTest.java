@@ -0,0 +1,58 @@
+package org.app.xml;
+
+import org.app.SyntheticBorderouri;
+import org.app.excel.ExcelReader;
+import org.app.model.ExcelData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class ParallelItemWriterTest {
+    private static final String LRN = "24RO000000000001";
+    private static final File BORDEROU = new File("src/main/resources/test/Borderou standard UK .xlsx");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void bundledBorderouIsWrittenAsSequentially() throws Exception {
+        assertSameAsSequential(new ExcelReader().read(BORDEROU), 2);
+    }
+
+    @Test
+    void columnarItemsAcrossChunksAndWaves() throws Exception {
+        File workbook = directory.resolve("synthetic.xlsx").toFile();
+        // two threads encode waves of two chunks; this ends inside the third wave, one item into a chunk
+        int rows = 4 * ParallelItemWriter.CHUNK_ITEMS + 1;
+        SyntheticBorderouri.writeXlsx(workbook, rows);
+        ExcelData data = new ExcelReader().read(workbook);
+
+        assertSameAsSequential(data, 2);
+        assertSameAsSequential(data, 3);
+    }
+
+    @Test
+    void listItemsAcrossChunksAndWaves() throws Exception {
+        for (int rows : new int[]{ParallelItemWriter.CHUNK_ITEMS + 1, 3 * ParallelItemWriter.CHUNK_ITEMS,
+                7 * ParallelItemWriter.CHUNK_ITEMS + 500}) {
+            ExcelData data = SyntheticBorderouri.data(rows);
+            assertSameAsSequential(data, 2);
+            assertSameAsSequential(data, 4);
+        }
+    }
+
+    private void assertSameAsSequential(ExcelData data, int parallelism) throws Exception {
+        File sequential = directory.resolve("sequential.xml").toFile();
+        new XmlGenerator().generate(sequential, LRN, data);
+        File parallel = directory.resolve("parallel.xml").toFile();
+        new XmlGenerator().withParallelWrite(parallelism).generate(parallel, LRN, data);
+
+        assertArrayEquals(Files.readAllBytes(sequential.toPath()), Files.readAllBytes(parallel.toPath()),
+                data.getItems().size() + " items on " + parallelism + " threads");
+    }
+}
@@ -0,0 +1,92 @@
+package org.app.xml;
+
+import org.app.SyntheticBorderouri;
+import org.app.excel.ExcelReader;
+import org.app.model.ExcelData;
+import org.app.model.Item;
+import org.app.model.ProgressListener;
+import org.jdom2.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class XmlGeneratorTest {
+    private static final String LRN = "24RO000000000001";
+    private static final File BORDEROU = new File("src/main/resources/test/Borderou standard UK .xlsx");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void compiledTemplateWritesTheSameBytesAsJdom() throws Exception {
+        ExcelData data = new ExcelReader().read(BORDEROU);
+        assertFalse(data.getItems().isEmpty());
+        XmlGenerator generator = new XmlGenerator();
+
+        File compiled = directory.resolve("compiled.xml").toFile();
+        generator.generate(compiled, LRN, data);
+
+        File jdom = directory.resolve("jdom.xml").toFile();
+        Document document = generator.loadTemplate();
+        generator.applyData(document, LRN, data);
+        generator.writeXml(document, jdom);
+
+        assertArrayEquals(Files.readAllBytes(jdom.toPath()), Files.readAllBytes(compiled.toPath()));
+    }
+
+    @Test
+    void pipelinedWritesTheSameBytesAsGenerate() throws Exception {
+        File synthetic = directory.resolve("synthetic.xlsx").toFile();
+        SyntheticBorderouri.writeXlsx(synthetic, 5000);
+        ExcelReader reader = new ExcelReader();
+        XmlGenerator generator = new XmlGenerator();
+        for (File borderou : new File[]{BORDEROU, synthetic}) {
+            ExcelData data = reader.read(borderou);
+            File whole = directory.resolve("whole.xml").toFile();
+            generator.generate(whole, LRN, data);
+
+            File pipelined = directory.resolve("pipelined.xml").toFile();
+            // a queue far smaller than the borderou, so the reader keeps blocking on the writer
+            int items = generator.generatePipelined(pipelined, LRN, sink -> reader.read(borderou, sink), 16,
+                    ProgressListener.NONE);
+
+            assertEquals(data.getItems().size(), items);
+            assertArrayEquals(Files.readAllBytes(whole.toPath()), Files.readAllBytes(pipelined.toPath()),
+                    borderou.getName());
+        }
+    }
+
+    @Test
+    void pipelinedProducerFailureLeavesNoFiles() throws Exception {
+        ExcelData data = SyntheticBorderouri.data(500);
+        File output = directory.resolve("failed.xml").toFile();
+
+        IOException failure = assertThrows(IOException.class, () -> new XmlGenerator().generatePipelined(output,
+                LRN, sink -> {
+                    for (Item item : data.getItems().subList(0, 300)) {
+                        sink.accept(item);
+                    }
+                    throw new IOException("borderou truncated");
+                }, 16, ProgressListener.NONE));
+
+        assertEquals("borderou truncated", failure.getMessage());
+        assertEquals("", listDirectory(), "neither the declaration nor its temporary items file is left");
+    }
+
+    private String listDirectory() throws IOException {
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.map(path -> path.getFileName().toString()).sorted().collect(Collectors.joining(", "));
+        }
+    }
+}